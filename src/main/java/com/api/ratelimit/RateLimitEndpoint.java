@@ -0,0 +1,197 @@
+package com.api.ratelimit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.event.GenericApplicationListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.configuration.RateLimitProperties;
+import com.service.RateLimitService;
+import com.service.ratelimit.RateLimitRules;
+import com.utilities.LogUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Actuator endpoint {@code /actuator/ratelimits} to view and change the rate
+ * limits at runtime, live buckets are migrated in place (see
+ * {@link RateLimitService#reload}).
+ *
+ * <ul>
+ * <li>GET: current rates</li>
+ * <li>POST {"path", "capacity", "tokens", "period"}: sets the rate of an
+ * endpoint path pattern, path {@code default} for the default rate</li>
+ * <li>DELETE ?path=: removes the rate of an endpoint path pattern</li>
+ * <li>POST /refresh: re-reads {@code rate.limit} from the Environment</li>
+ * </ul>
+ *
+ * POST needs the {@code ROLE_RATELIMITS_WRITE} authority and DELETE
+ * {@code ROLE_RATELIMITS_DELETE}, granted to the HTTP Basic users of
+ * {@code actuator.users} (see SecurityConfig and ManagementUsersProperties).
+ * GET is open like the other actuator endpoints.
+ *
+ * The rates are also re-read when Spring Cloud refreshes the Environment
+ * (EnvironmentChangeEvent, matched by name so Spring Cloud stays optional).
+ * Changes aren't written back to the configuration files.
+ *
+ * Endpoint patterns matching no handler mapping are logged as warning at
+ * startup and after every change, their requests get the default limit.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "ratelimits")
+public class RateLimitEndpoint implements GenericApplicationListener {
+
+	private static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+
+	private final RateLimitService rateLimitService;
+
+	private final RateLimitProperties rateLimitProperties;
+
+	private final Environment environment;
+
+	// Handler mapping patterns with the context path, known once the application is ready
+	private volatile List<String> handlerPaths;
+
+	public RateLimitEndpoint(RateLimitService rateLimitService, RateLimitProperties rateLimitProperties,
+			Environment environment) {
+		this.rateLimitService = rateLimitService;
+		this.rateLimitProperties = rateLimitProperties;
+		this.environment = environment;
+	}
+
+	@ReadOperation
+	public Map<String, Object> rules() {
+		RateLimitRules rules = rateLimitProperties.getRules();
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("version", rules.getVersion());
+		body.put("engine", rateLimitProperties.getEngine());
+		body.put("defaultRate", rateLimitProperties.getDefaultRate());
+		body.put("endpoints", new LinkedHashMap<>(rateLimitProperties.getEndpoints()));
+		return body;
+	}
+
+	@WriteOperation
+	public Map<String, Object> update(String path, int capacity, int tokens, int period) throws Throwable {
+		try {
+			RateLimitProperties.Rate rate = new RateLimitProperties.Rate(capacity, tokens, period);
+			return applied(rateLimitService.updateEndpoint(log, path, rate));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+		}
+	}
+
+	@DeleteOperation
+	public Map<String, Object> remove(String path) throws Throwable {
+		int migrated = rateLimitService.removeEndpoint(log, path);
+		if (migrated < 0) {
+			throw new InvalidEndpointRequestException("No rate limit for " + path, "No rate limit for path");
+		}
+		return applied(migrated);
+	}
+
+	/**
+	 * @param action {@code refresh}
+	 */
+	@WriteOperation
+	public Map<String, Object> action(@Selector String action) throws Throwable {
+		if (!"refresh".equals(action)) {
+			throw new InvalidEndpointRequestException("Unknown action " + action, "Unknown action");
+		}
+		try {
+			return applied(refresh());
+		} catch (IllegalArgumentException e) {
+			throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Re-reads the default & endpoint rates from the Environment.
+	 *
+	 * @return number of live buckets migrated
+	 */
+	private int refresh() throws Throwable {
+		Binder binder = Binder.get(environment);
+		RateLimitProperties.Rate defaultRate = binder
+				.bind("rate.limit.default-rate", RateLimitProperties.Rate.class)
+				.orElse(rateLimitProperties.getDefaultRate());
+		Map<String, RateLimitProperties.Rate> endpoints = binder
+				.bind("rate.limit.endpoints", Bindable.mapOf(String.class, RateLimitProperties.Rate.class))
+				.orElse(Map.of());
+		return rateLimitService.reload(log, defaultRate, endpoints);
+	}
+
+	private Map<String, Object> applied(int migrated) {
+		warnUnmatchedPatterns();
+		Map<String, Object> body = rules();
+		body.put("migratedBuckets", migrated);
+		return body;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		try {
+			String contextPath = environment.getProperty("server.servlet.context-path", "");
+			List<String> paths = new ArrayList<>();
+			for (RequestMappingHandlerMapping mapping : event.getApplicationContext()
+					.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+				for (RequestMappingInfo info : mapping.getHandlerMethods().keySet()) {
+					for (String pattern : info.getPatternValues()) {
+						paths.add(contextPath + (pattern.startsWith("/") ? "" : "/") + pattern);
+					}
+				}
+			}
+			handlerPaths = paths;
+			warnUnmatchedPatterns();
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+
+	private void warnUnmatchedPatterns() {
+		List<String> paths = handlerPaths;
+		if (paths == null) {
+			return;
+		}
+		for (String pattern : rateLimitProperties.getRules().unmatchedPatterns(paths)) {
+			log.warn("Rate limit path pattern {} matches no handler mapping, its requests get the default rate",
+					pattern);
+		}
+	}
+
+	@Override
+	public boolean supportsEventType(ResolvableType eventType) {
+		Class<?> type = eventType.toClass();
+		return type != null && ENVIRONMENT_CHANGE_EVENT.equals(type.getName());
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		try {
+			log.info("Environment changed, re-reading rate limits");
+			refresh();
+			warnUnmatchedPatterns();
+		} catch (Throwable e) {
+			// The current rates stay
+			LogUtil.logError(log, e);
+		}
+	}
+}
@@ -2,15 +2,18 @@ package com.configuration;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
 import com.pojo.bucket4j.CustomBucket;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
 import javax.cache.CacheManager;
 import javax.cache.Caching;
-import javax.cache.configuration.MutableConfiguration;
-import javax.cache.expiry.CreatedExpiryPolicy;
-import javax.cache.expiry.Duration;
 import javax.cache.spi.CachingProvider;
 
 @Configuration
@@ -23,26 +26,32 @@ public class CacheConfig {
 	 * @return a JSR-107 compatible CacheManager
 	 */
 	@Bean(name = "customCacheManager")
-	CacheManager cacheManager() {
+	CacheManager cacheManager(RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
 		// Get the default caching provider (e.g., Ehcache, Hazelcast, etc.)
 		CachingProvider provider = Caching.getCachingProvider();
 		CacheManager cacheManager = provider.getCacheManager();
 
-		MutableConfiguration<String, CustomBucket> customBucketConfig = new MutableConfiguration<String, CustomBucket>()
+		RateLimitProperties.BucketCache bucketCache = rateLimitProperties.getCache();
+		CaffeineConfiguration<String, CustomBucket> customBucketConfig = new CaffeineConfiguration<String, CustomBucket>()
 				.setTypes(String.class, CustomBucket.class) // enforce proper types
-				.setStoreByValue(false)// Store references instead of copying the Bucket object
-				.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, 1 * 60)))// Expiration of
-																																																			// bucket per
-																																																			// minute & will
-																																																			// auto create a
-																																																			// new one from
-																																																			// incoming
-																																																			// request
-				.setStatisticsEnabled(true);// Enable cache hit/miss statistics
+				.setStoreByValue(false);// Store references instead of copying the Bucket object
+		// Idle expiry: a bucket stays while its key keeps calling, so active clients
+		// keep their consumed tokens. Past the max size the least valuable buckets
+		// are evicted (W-TinyLFU), so idle keys go first
+		customBucketConfig.setExpireAfterAccess(
+				OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(bucketCache.getExpireAfterAccessMillis())));
+		customBucketConfig.setMaximumSize(OptionalLong.of(bucketCache.getMaximumSize()));
+		customBucketConfig.setNativeStatisticsEnabled(true);// Hit/miss/eviction statistics for Prometheus
+		customBucketConfig.setStatisticsEnabled(true);// Enable cache hit/miss statistics
 		if (cacheManager.getCache("buckets") == null) {
 			// Can use along side with @Cacheable("<cache name>" on method)
 			cacheManager.createCache("buckets", customBucketConfig);
 		}
+		// The JCache wraps a Caffeine cache of Expirable<CustomBucket> values, the
+		// metrics only need the cache itself, not its types
+		Cache<?, ?> buckets = cacheManager.getCache("buckets", String.class, CustomBucket.class).unwrap(Cache.class);
+		// cache_gets{result=hit|miss}, cache_evictions, cache_size... tagged cache=buckets
+		CaffeineCacheMetrics.monitor(meterRegistry, buckets, "buckets");
 
 		return cacheManager;
 	}
@@ -5,7 +5,15 @@ import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import com.exception.PayloadTooLargeException;
 
 /**
  * Custom HTTP servlet request wrapper that caches the request body for multiple
@@ -65,9 +73,12 @@ import java.nio.charset.StandardCharsets;
  * <p>
  * <b>Memory consideration:</b>
  * </p>
- * The entire request body is loaded into memory. For very large payloads (e.g.,
- * file uploads),
- * consider implementing a size limit or using streaming approaches instead.
+ * Bodies up to the memory threshold are read into a heap buffer, sized to the
+ * Content-Length when it is sent, otherwise taken from a pool. Larger bodies are spilled to a temp file which is memory-mapped for
+ * re-reads, so they don't occupy heap. A body above the max size is rejected
+ * with {@link PayloadTooLargeException}, before reading when Content-Length
+ * is sent. Call {@link #release()} once the request is done to return the
+ * buffer to the pool and delete the temp file.
  * 
  * @see HttpServletRequestWrapper
  * @see CustomOncePerRequestFilter
@@ -76,16 +87,47 @@ import java.nio.charset.StandardCharsets;
 public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
 
     /**
-     * Cached byte array containing the entire request body.
-     * This is populated once during wrapper construction and reused for all
-     * subsequent reads.
+     * Read-only view of the cached body, either over a heap buffer or over the
+     * memory-mapped spill file. Readers work on duplicates, each with its own
+     * position. Replaced by an empty buffer on {@link #release()}, before the heap
+     * buffer goes back to the pool.
+     */
+    private ByteBuffer body;
+
+    private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    /**
+     * Number of cached body bytes.
+     */
+    private final int bodyLength;
+
+    /**
+     * Pool the heap buffer came from, null if it isn't pooled (sized to the
+     * Content-Length or spilled).
+     */
+    private final BodyBufferPool bufferPool;
+
+    /**
+     * Heap buffer holding the body, null once released or if spilled.
+     */
+    private byte[] heapBuffer;
+
+    /**
+     * Temp file holding a spilled body, null if kept on heap.
+     */
+    private Path spillFile;
+
+    /**
+     * Exact-length copy handed out by {@link #getCachedBody()}, created on first
+     * use.
      */
     private byte[] cachedBody;
 
     /**
      * Constructs a new CachedBodyHttpServletRequest by wrapping the original
      * request
-     * and immediately reading and caching its body content.
+     * and immediately reading and caching its body content on heap, without
+     * size limit.
      * 
      * @param request the original {@link HttpServletRequest} to wrap
      * @throws IOException if an I/O error occurs while reading the request body
@@ -96,7 +138,128 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
         // This ensures the original input stream is read before it's closed or consumed
         // elsewhere
         InputStream requestInputStream = request.getInputStream();
-        this.cachedBody = requestInputStream.readAllBytes();
+        this.heapBuffer = requestInputStream.readAllBytes();
+        this.bodyLength = this.heapBuffer.length;
+        this.body = ByteBuffer.wrap(this.heapBuffer).asReadOnlyBuffer();
+        this.bufferPool = null;
+    }
+
+    /**
+     * Constructs a new CachedBodyHttpServletRequest caching the body on heap,
+     * spilling to a temp file once the body outgrows the memory threshold. A body
+     * with a Content-Length below the threshold is read into an array of exactly
+     * that size, others into a buffer taken from the pool.
+     * 
+     * @param request        the original {@link HttpServletRequest} to wrap
+     * @param bufferPool     pool of heap buffers, its buffer size is the memory
+     *                       threshold
+     * @param maxSize        max body size in bytes, capped at
+     *                       {@code Integer.MAX_VALUE - 8}
+     * @param spillDirectory directory of the temp file, null for the system temp
+     *                       directory
+     * @throws PayloadTooLargeException if the body is larger than maxSize
+     * @throws IOException              if an I/O error occurs while reading or
+     *                                  spilling the request body
+     */
+    public CachedBodyHttpServletRequest(HttpServletRequest request, BodyBufferPool bufferPool, long maxSize,
+            Path spillDirectory) throws IOException {
+        super(request);
+        long limit = Math.min(maxSize, Integer.MAX_VALUE - 8);
+        // Reject early, before reading a single byte
+        if (request.getContentLengthLong() > limit) {
+            throw new PayloadTooLargeException("Request body of " + request.getContentLengthLong()
+                    + " bytes exceeds the maximum of " + limit + " bytes");
+        }
+        InputStream requestInputStream = request.getInputStream();
+        long contentLength = request.getContentLengthLong();
+        boolean pooled = contentLength < 0 || contentLength >= bufferPool.getBufferSize();
+        byte[] buffer = pooled ? bufferPool.acquire() : new byte[(int) contentLength];
+        boolean keep = false;
+        try {
+            int length = requestInputStream.readNBytes(buffer, 0, buffer.length);
+            int next = length < buffer.length ? -1 : requestInputStream.read();
+            if (next >= 0 && !pooled) {
+                // Longer than its Content-Length, carry on in a pooled buffer
+                byte[] sized = buffer;
+                buffer = bufferPool.acquire();
+                pooled = true;
+                System.arraycopy(sized, 0, buffer, 0, length);
+                buffer[length++] = (byte) next;
+                length += requestInputStream.readNBytes(buffer, length, buffer.length - length);
+                next = length < buffer.length ? -1 : requestInputStream.read();
+            }
+            if (next < 0) {
+                if (length > limit) {
+                    throw new PayloadTooLargeException(
+                            "Request body exceeds the maximum of " + limit + " bytes");
+                }
+                // Fits the heap buffer
+                this.heapBuffer = buffer;
+                this.bufferPool = pooled ? bufferPool : null;
+                this.bodyLength = length;
+                this.body = ByteBuffer.wrap(buffer, 0, length).slice().asReadOnlyBuffer();
+                keep = true;
+                return;
+            }
+            this.bufferPool = null;
+            Path file = spillDirectory != null ? Files.createTempFile(spillDirectory, "request-body-", ".tmp")
+                    : Files.createTempFile("request-body-", ".tmp");
+            try {
+                long total = spill(requestInputStream, file, buffer, length, next, limit);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    // Mapping stays valid after the channel is closed
+                    this.body = channel.map(FileChannel.MapMode.READ_ONLY, 0, total).asReadOnlyBuffer();
+                }
+                this.bodyLength = (int) total;
+                this.spillFile = file;
+            } catch (Throwable e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } finally {
+            if (!keep && pooled) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the already read part of the body and the rest of the stream to the
+     * spill file, using the heap buffer as transfer buffer.
+     * 
+     * @return the total body length
+     */
+    private static long spill(InputStream in, Path file, byte[] buffer, int length, int next, long limit)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(buffer, 0, length));
+            long total = length;
+            buffer[0] = (byte) next;
+            int count = 1;
+            while (true) {
+                int read = in.read(buffer, count, buffer.length - count);
+                if (read > 0) {
+                    count += read;
+                }
+                if (read < 0 || count == buffer.length) {
+                    total += count;
+                    if (total > limit) {
+                        throw new PayloadTooLargeException("Request body exceeds the maximum of " + limit + " bytes");
+                    }
+                    writeFully(channel, ByteBuffer.wrap(buffer, 0, count));
+                    count = 0;
+                    if (read < 0) {
+                        return total;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
     }
 
     /**
@@ -104,11 +267,11 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
      * This method can be called multiple times, and each call returns a new stream
      * instance reading from the beginning of the cached body.
      * 
-     * @return a new ServletInputStream backed by the cached body bytes
+     * @return a new ServletInputStream backed by the cached body
      */
     @Override
     public ServletInputStream getInputStream() {
-        return new CachedBodyServletInputStream(this.cachedBody);
+        return new CachedBodyServletInputStream(this.body.duplicate());
     }
 
     /**
@@ -116,12 +279,11 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
      * character data.
      * The reader uses UTF-8 encoding to interpret the cached bytes.
      * 
-     * @return a new BufferedReader backed by the cached body bytes
+     * @return a new BufferedReader backed by the cached body
      */
     @Override
     public BufferedReader getReader() {
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(this.cachedBody);
-        return new BufferedReader(new InputStreamReader(byteArrayInputStream, StandardCharsets.UTF_8));
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
     }
 
     /**
@@ -145,15 +307,129 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
      * @return the cached request body as a string
      */
     public String getBody() {
-        return new String(this.cachedBody, StandardCharsets.UTF_8);
+        return StandardCharsets.UTF_8.decode(this.body.duplicate()).toString();
     }
 
     /**
-     * Custom {@link ServletInputStream} implementation that reads from a cached
-     * byte array.
+     * Returns the cached request body bytes as received, without decoding them.
+     * Preferred over {@link #getBody()} for signature verification and masking,
+     * which both work on the UTF-8 bytes directly.
+     * 
+     * <p>
+     * The array is an exact-length copy made on first call (the pooled buffer is
+     * reused by other requests after {@link #release()}) and must not be
+     * modified. Prefer {@link #getBodyBuffer()} for large bodies.
+     * </p>
+     * 
+     * @return the cached request body bytes
+     */
+    public byte[] getCachedBody() {
+        if (this.cachedBody == null) {
+            ByteBuffer source = this.body.duplicate();
+            byte[] copy = new byte[source.remaining()];
+            source.get(copy);
+            this.cachedBody = copy;
+        }
+        return this.cachedBody;
+    }
+
+    /**
+     * Returns a read-only view of the cached body, positioned at its start. The
+     * view is backed by the heap buffer or the mapped spill file and is only
+     * valid until {@link #release()}.
+     * 
+     * @return a new read-only ByteBuffer over the cached body
+     */
+    public ByteBuffer getBodyBuffer() {
+        return this.body.duplicate();
+    }
+
+    /**
+     * @return the number of cached body bytes
+     */
+    public int getBodyLength() {
+        return this.bodyLength;
+    }
+
+    /**
+     * @return true if the body was larger than the memory threshold and is held
+     *         in a temp file
+     */
+    public boolean isSpilled() {
+        return this.spillFile != null;
+    }
+
+    /**
+     * Returns the pooled heap buffer and deletes the spill file, the body reads
+     * as empty afterwards. Safe to call more than once.
+     */
+    public synchronized void release() {
+        // Detach the body first, the pooled array may be refilled by another request
+        this.body = EMPTY_BODY;
+        if (this.heapBuffer != null) {
+            if (this.bufferPool != null) {
+                this.bufferPool.release(this.heapBuffer);
+            }
+            this.heapBuffer = null;
+        }
+        if (this.spillFile != null) {
+            try {
+                Files.deleteIfExists(this.spillFile);
+            } catch (IOException e) {
+                // Still mapped on some platforms, removed on exit instead
+                this.spillFile.toFile().deleteOnExit();
+            }
+            this.spillFile = null;
+        }
+    }
+
+    /**
+     * Bounded pool of equally sized heap buffers for request bodies. The buffer
+     * size is the threshold above which bodies spill to disk.
+     */
+    public static final class BodyBufferPool {
+
+        private final int bufferSize;
+
+        private final ArrayBlockingQueue<byte[]> buffers;
+
+        /**
+         * @param bufferSize size of one buffer in bytes, at least 1
+         * @param maxPooled  max number of idle buffers kept, at least 1
+         */
+        public BodyBufferPool(int bufferSize, int maxPooled) {
+            this.bufferSize = Math.max(1, bufferSize);
+            this.buffers = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+        }
+
+        /**
+         * @return an idle buffer, or a new one if the pool is empty
+         */
+        public byte[] acquire() {
+            byte[] buffer = buffers.poll();
+            return buffer != null ? buffer : new byte[bufferSize];
+        }
+
+        /**
+         * Returns a buffer, dropped if the pool is full.
+         */
+        public void release(byte[] buffer) {
+            if (buffer != null && buffer.length == bufferSize) {
+                buffers.offer(buffer);
+            }
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+    }
+
+    /**
+     * Custom {@link ServletInputStream} implementation that reads from the cached
+     * body.
      * This allows the request body to be read multiple times by creating new
      * instances
-     * of this class, each with its own position pointer into the shared byte array.
+     * of this class, each with its own position pointer into the shared buffer.
      * 
      * <p>
      * This inner class is package-private and only used internally by the wrapper.
@@ -162,19 +438,19 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
     private static class CachedBodyServletInputStream extends ServletInputStream {
 
         /**
-         * Input stream backed by the cached body byte array.
-         * Each instance of CachedBodyServletInputStream has its own stream
+         * Duplicate of the cached body buffer.
+         * Each instance of CachedBodyServletInputStream has its own buffer view
          * with an independent position pointer.
          */
-        private final InputStream cachedBodyInputStream;
+        private final ByteBuffer cachedBodyBuffer;
 
         /**
-         * Constructs a new CachedBodyServletInputStream from a cached byte array.
+         * Constructs a new CachedBodyServletInputStream from a cached body view.
          * 
-         * @param cachedBody the byte array containing the cached request body
+         * @param cachedBodyBuffer the buffer view over the cached request body
          */
-        public CachedBodyServletInputStream(byte[] cachedBody) {
-            this.cachedBodyInputStream = new ByteArrayInputStream(cachedBody);
+        public CachedBodyServletInputStream(ByteBuffer cachedBodyBuffer) {
+            this.cachedBodyBuffer = cachedBodyBuffer;
         }
 
         /**
@@ -185,18 +461,14 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
          */
         @Override
         public boolean isFinished() {
-            try {
-                return cachedBodyInputStream.available() == 0;
-            } catch (IOException e) {
-                return true;
-            }
+            return !cachedBodyBuffer.hasRemaining();
         }
 
         /**
          * Indicates whether the input stream is ready to be read without blocking.
          * Since the data is cached in memory, this always returns {@code true}.
          * 
-         * @return {@code true} always, as reading from a byte array never blocks
+         * @return {@code true} always, as reading from a buffer never blocks
          */
         @Override
         public boolean isReady() {
@@ -208,7 +480,7 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
          * 
          * <p>
          * <b>Note:</b> This implementation does not support asynchronous reads
-         * because the cached body is already fully loaded in memory.
+         * because the cached body is already fully loaded.
          * </p>
          * 
          * @param readListener the read listener (not used)
@@ -221,14 +493,34 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
         }
 
         /**
-         * Reads the next byte of data from the cached input stream.
+         * Reads the next byte of data from the cached body.
          * 
          * @return the next byte of data, or -1 if the end of the stream is reached
-         * @throws IOException if an I/O error occurs
          */
         @Override
-        public int read() throws IOException {
-            return cachedBodyInputStream.read();
+        public int read() {
+            return cachedBodyBuffer.hasRemaining() ? cachedBodyBuffer.get() & 0xFF : -1;
+        }
+
+        /**
+         * Bulk read straight from the cached body.
+         */
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!cachedBodyBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, cachedBodyBuffer.remaining());
+            cachedBodyBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return cachedBodyBuffer.remaining();
         }
     }
 }
\ No newline at end of file
@@ -1,18 +1,27 @@
 package com.configuration;
 import com.utilities.LogUtil;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jboss.logging.MDC;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import com.exception.RateLimitExceededException;
-import com.pojo.bucket4j.CustomBucket;
 import com.service.RateLimitService;
+import com.service.ratelimit.RateLimitKeyPlan;
 import com.validation.RateLimit;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -24,8 +33,23 @@ public class CustomHandlerInterceptor implements HandlerInterceptor {
 
 	private static final String REQUEST_ID_HEADER = "X-Request-ID";
 
+	// Set while a request is suspended waiting for a rate limit token
+	private static final String RATE_LIMIT_DEFERRED = "CustomHandlerInterceptor.RATE_LIMIT_DEFERRED";
+
+	// Set on a suspended request that got no token in time
+	private static final String RATE_LIMIT_REJECTED = "CustomHandlerInterceptor.RATE_LIMIT_REJECTED";
+
+	// Extra time before the container times out a suspended request
+	private static final long ASYNC_TIMEOUT_MARGIN_MILLIS = 1000L;
+
+	// Carries the SecurityContext of a suspended request over to its async dispatch
+	private final RequestAttributeSecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
 	private final RateLimitService rateLimitService;
 
+	// @RateLimit of each handler method, compiled on its first request
+	private final Map<HandlerMethod, RateLimitKeyPlan> plans = new ConcurrentHashMap<>();
+
 	public CustomHandlerInterceptor(RateLimitService rateLimitService) {
 		this.rateLimitService = rateLimitService;
 	}
@@ -36,6 +60,16 @@ public class CustomHandlerInterceptor implements HandlerInterceptor {
 		MDC.put(REQUEST_ID_HEADER, requestId != null && !requestId.isBlank() ? requestId : UUID.randomUUID().toString());
 		log.info("-Handler interceptor start-");
 		try {
+			if (request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(RATE_LIMIT_DEFERRED) != null) {
+				// Resumed after waiting for a rate limit token, see defer
+				request.removeAttribute(RATE_LIMIT_DEFERRED);
+				if (request.getAttribute(RATE_LIMIT_REJECTED) != null) {
+					throw new RateLimitExceededException("Rate limit exceeded");
+				}
+				SecurityContextHolder.setContext(securityContextRepository.loadDeferredContext(request).get());
+				log.info("Rate limit token available, request resumed");
+				return true;
+			}
 			if (request.getDispatcherType() != DispatcherType.REQUEST
 					|| request.getAttribute("CustomHandlerInterceptor") != null) {
 				return true; // Avoid same full logic run twice for handler interceptor
@@ -49,48 +83,38 @@ public class CustomHandlerInterceptor implements HandlerInterceptor {
 			// Cast the generic handler object to HandlerMethod to access controller method
 			// metadata
 			HandlerMethod handlerMethod = (HandlerMethod) handler;
-			// Retrieve the @RateLimit annotation (custom) from the handler method, if
-			// present
-			RateLimit rateLimit = handlerMethod.getMethodAnnotation(RateLimit.class);
-
-			String resolvedIpKey = rateLimitService.resolveKeyFromRequest(log, request, "", "ip");
-			String headerName = rateLimit.headerName();
-			String resolvedHeaderKey = headerName != null && !headerName.isBlank()
-					? rateLimitService.resolveKeyFromRequest(log, request, "header", headerName)
-					: null;
-			String pathVariable = rateLimit.pathVariable();
-			String resolvedPathVariableKey = pathVariable != null && !pathVariable.isBlank()
-					? rateLimitService.resolveKeyFromRequest(log, request, "pathVariable", pathVariable)
-					: null;
-			String requestBodyField = rateLimit.requestBodyField();
-			String resolvedRequestBodyFieldKey = requestBodyField != null && !requestBodyField.isBlank()
-					? rateLimitService.resolveKeyFromRequest(log, request, "requestBody", requestBodyField)
-					: null;
-
-			// Resolve the actual key from the request
-			String resolvedKey = resolvedIpKey;
-			if (resolvedHeaderKey != null && !resolvedHeaderKey.isBlank()) {
-				resolvedKey = resolvedKey != null && !resolvedKey.isBlank() ? resolvedKey.concat("|").concat(resolvedHeaderKey)
-						: resolvedKey.concat(resolvedHeaderKey);
+			// Key extraction compiled once from the @RateLimit annotation (custom) of
+			// the handler method, methods without it aren't rate limited
+			RateLimitKeyPlan plan = plans.get(handlerMethod);
+			if (plan == null) {
+				plan = plans.computeIfAbsent(handlerMethod,
+						method -> RateLimitKeyPlan.compile(method.getMethodAnnotation(RateLimit.class)));
 			}
-			if (resolvedPathVariableKey != null && !resolvedPathVariableKey.isBlank()) {
-				resolvedKey = resolvedKey != null && !resolvedKey.isBlank()
-						? resolvedKey.concat("|").concat(resolvedPathVariableKey)
-						: resolvedKey.concat(resolvedPathVariableKey);
-			}
-			if (resolvedRequestBodyFieldKey != null && !resolvedRequestBodyFieldKey.isBlank()) {
-				resolvedKey = resolvedKey != null && !resolvedKey.isBlank()
-						? resolvedKey.concat("|").concat(resolvedRequestBodyFieldKey)
-						: resolvedKey.concat(resolvedRequestBodyFieldKey);
+			if (!plan.isLimited()) {
+				return true;
 			}
+			// Resolve the actual key from the request
+			String resolvedKey = rateLimitService.resolveKey(log, request, plan);
 			// Try to consume a token
 			log.info("Resolved key {}", resolvedKey);
-			CustomBucket bucket = rateLimitService.resolveBucket(resolvedKey, request.getRequestURI());
-			log.info("Available tokens: {} for key: {} at endpoint {}", bucket.getAvailableTokens(), resolvedKey,
-					request.getRequestURI());
-			boolean allowed = rateLimitService.tryConsume(bucket);
-			log.info("Remaining tokens: {} for key: {} at endpoint {}", bucket.getAvailableTokens(), resolvedKey,
-					request.getRequestURI());
+			String path = request.getRequestURI();
+			log.info("Available tokens: {} for key: {} at endpoint {}",
+					rateLimitService.getAvailableTokens(resolvedKey, path), resolvedKey, path);
+			boolean allowed;
+			if (rateLimitService.isDeferredAdmission() && request.isAsyncSupported()) {
+				CompletableFuture<Boolean> admission = rateLimitService.tryConsumeAsync(resolvedKey, path);
+				if (!admission.isDone()) {
+					// Token reserved but not refilled yet, release the thread until it is
+					defer(request, response, admission);
+					log.info("Request suspended until a token refills for key: {} at endpoint {}", resolvedKey, path);
+					return false;
+				}
+				allowed = admission.join();
+			} else {
+				allowed = rateLimitService.tryConsume(resolvedKey, path);
+			}
+			log.info("Remaining tokens: {} for key: {} at endpoint {}",
+					rateLimitService.getAvailableTokens(resolvedKey, path), resolvedKey, path);
 
 			if (!allowed) {
 				throw new RateLimitExceededException("Rate limit exceeded");
@@ -108,4 +132,49 @@ public class CustomHandlerInterceptor implements HandlerInterceptor {
 			MDC.clear();
 		}
 	}
+
+	/**
+	 * Suspends the request (servlet async) without holding its thread, and
+	 * dispatches it again once the admission completes: to the handler if a
+	 * token was granted, to a 429 otherwise. A request the admission doesn't
+	 * complete in time is rejected by the async timeout.
+	 */
+	private void defer(HttpServletRequest request, HttpServletResponse response, CompletableFuture<Boolean> admission) {
+		securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
+		request.setAttribute(RATE_LIMIT_DEFERRED, Boolean.TRUE);
+		AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(rateLimitService.getMaxWaitMillis() + ASYNC_TIMEOUT_MARGIN_MILLIS);
+		// Dispatch once, whichever of admission / timeout comes first
+		AtomicBoolean resumed = new AtomicBoolean();
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				if (resumed.compareAndSet(false, true)) {
+					request.setAttribute(RATE_LIMIT_REJECTED, Boolean.TRUE);
+					asyncContext.dispatch();
+				}
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				resumed.set(true);
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+		admission.whenComplete((allowed, e) -> {
+			if (resumed.compareAndSet(false, true)) {
+				if (!Boolean.TRUE.equals(allowed)) {
+					request.setAttribute(RATE_LIMIT_REJECTED, Boolean.TRUE);
+				}
+				asyncContext.dispatch();
+			}
+		});
+	}
 }
@@ -2,26 +2,41 @@ package com.configuration;
 import com.utilities.LogUtil;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 import org.jboss.logging.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.enums.ResponseCode;
+import com.exception.PayloadTooLargeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pojo.ApiResponse;
 import com.service.AuthService;
 import com.utilities.RequestLoggingUtil;
+import com.utilities.Tool;
 
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
@@ -34,18 +49,39 @@ public class CustomOncePerRequestFilter extends OncePerRequestFilter {
 
 	private final AuthService authService;
 
-	public CustomOncePerRequestFilter(AuthService authService) {
+	private final RequestBodyCacheProperties requestBodyCacheProperties;
+
+	private final ObjectMapper objectMapper;
+
+	private final Tool tool;
+
+	private final CachedBodyHttpServletRequest.BodyBufferPool bodyBufferPool;
+
+	private final Path spillDirectory;
+
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+	public CustomOncePerRequestFilter(AuthService authService, RequestBodyCacheProperties requestBodyCacheProperties,
+			ObjectMapper objectMapper, Tool tool) {
 		this.authService = authService;
+		this.requestBodyCacheProperties = requestBodyCacheProperties;
+		this.objectMapper = objectMapper;
+		this.tool = tool;
+		this.bodyBufferPool = new CachedBodyHttpServletRequest.BodyBufferPool(
+				requestBodyCacheProperties.getMemoryThreshold(), requestBodyCacheProperties.getPoolSize());
+		String directory = requestBodyCacheProperties.getSpillDirectory();
+		this.spillDirectory = directory != null && !directory.isBlank() ? Path.of(directory) : null;
 	}
 
 	@Override
 	protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
 			@NonNull FilterChain chain) throws IOException, ServletException {
+		CachedBodyHttpServletRequest cachedRequest = null;
 		try {
 			UUID xRequestId = UUID.randomUUID();
 
-			// Wrap request ONCE to cache body
-			CachedBodyHttpServletRequest wrappedRequest = new CachedBodyHttpServletRequest(request) {
+			// Expose the generated X-Request-ID as request header
+			HttpServletRequest requestWithId = new HttpServletRequestWrapper(request) {
 				@Override
 				public String getHeader(String name) {
 					if ("X-Request-ID".equals(name)) {
@@ -74,10 +110,25 @@ public class CustomOncePerRequestFilter extends OncePerRequestFilter {
 							? response.getHeader("X-Request-ID")
 							: UUID.randomUUID());
 			log.info("-Custom once per request filter start-");
-			RequestLoggingUtil.logRequestDetails(wrappedRequest, log);
+			RequestLoggingUtil.logRequestDetails(requestWithId, log);
+
+			String signature = requestWithId.getHeader("SIGNATURE");
+			boolean hasSignature = signature != null && !signature.isBlank();
+			HttpServletRequest wrappedRequest = requestWithId;
+			if (hasSignature || !isSkippedMultipart(requestWithId)) {
+				// Wrap request ONCE to cache body
+				try {
+					cachedRequest = new CachedBodyHttpServletRequest(requestWithId, bodyBufferPool,
+							resolveMaxSize(requestWithId), spillDirectory);
+				} catch (PayloadTooLargeException e) {
+					log.warn("Rejected request body of URI: {}, {}", requestWithId.getRequestURI(), e.getMessage());
+					writePayloadTooLarge(response, e);
+					return;
+				}
+				wrappedRequest = cachedRequest;
+			}
 
-			String signature = wrappedRequest.getHeader("SIGNATURE");
-			if (signature != null && !signature.isBlank()) {
+			if (hasSignature) {
 				// Validate signature format and length before processing
 				if (signature.length() > 1024) {
 					log.warn("Signature length exceeds maximum allowed (1024 characters)");
@@ -111,7 +162,8 @@ public class CustomOncePerRequestFilter extends OncePerRequestFilter {
 					throw new ServletException("Invalid X-TIMESTAMP format");
 				}
 
-				String requestBody = wrappedRequest.getBody(); // Simply get cached body
+				// View over the cached bytes (heap or mapped file), no copy, no String decoding
+				ByteBuffer requestBody = cachedRequest.getBodyBuffer();
 				Authentication authentication = authService.isSignatureValid(log, wrappedRequest.getMethod(),
 						wrappedRequest.getRequestURI(), timestamp, requestBody, signature, signingKeyId);
 				if (authentication.isAuthenticated()) {
@@ -128,8 +180,84 @@ public class CustomOncePerRequestFilter extends OncePerRequestFilter {
 			LogUtil.logError(log, e);
 			throw e;
 		} finally {
+			if (cachedRequest != null) {
+				releaseWhenDone(request, cachedRequest);
+			}
 			log.info("-Custom once per request filter end-");
 			MDC.clear();
 		}
 	}
+
+	/**
+	 * Multipart uploads are streamed to the multipart resolver as is, caching them
+	 * would only copy the file & consume the stream the resolver needs.
+	 */
+	private boolean isSkippedMultipart(HttpServletRequest request) {
+		String contentType = request.getContentType();
+		return requestBodyCacheProperties.isSkipMultipart() && contentType != null
+				&& contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+	}
+
+	/**
+	 * Max body size of the first route pattern matching the request URI, the
+	 * global max otherwise.
+	 */
+	private long resolveMaxSize(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		for (Map.Entry<String, Long> route : requestBodyCacheProperties.getRouteMaxSize().entrySet()) {
+			if (route.getValue() != null && pathMatcher.match(route.getKey(), uri)) {
+				return route.getValue();
+			}
+		}
+		return requestBodyCacheProperties.getMaxSize();
+	}
+
+	/**
+	 * Filters run before the dispatcher, so CustomResponseBodyAdvice can't map the
+	 * exception here; the 413 response is written directly in the same format.
+	 */
+	private void writePayloadTooLarge(HttpServletResponse response, PayloadTooLargeException e) throws IOException {
+		response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		// Tell the container not to drain the rest of the body
+		response.setHeader("Connection", "close");
+		objectMapper.writeValue(response.getOutputStream(), ApiResponse
+				.builder()
+				.resp_code(ResponseCode.PAYLOAD_TOO_LARGE.getResponse_code())
+				.resp_msg(ResponseCode.PAYLOAD_TOO_LARGE.getResponse_desc())
+				.datetime(tool.getTodayDateTimeInString())
+				.build());
+	}
+
+	/**
+	 * Releases the cached body now, or once an async request completes since the
+	 * body may still be read on the async dispatch.
+	 */
+	private void releaseWhenDone(HttpServletRequest request, CachedBodyHttpServletRequest cachedRequest) {
+		if (!request.isAsyncStarted()) {
+			cachedRequest.release();
+			return;
+		}
+		request.getAsyncContext().addListener(new AsyncListener() {
+			@Override
+			public void onComplete(AsyncEvent event) {
+				cachedRequest.release();
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				cachedRequest.release();
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				cachedRequest.release();
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+				event.getAsyncContext().addListener(this);
+			}
+		});
+	}
 }
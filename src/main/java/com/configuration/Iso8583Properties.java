@@ -0,0 +1,68 @@
+package com.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Settings of the persistent ISO 8583 switch link managed by
+ * {@link com.service.iso8583.Iso8583ChannelPool}.
+ *
+ * The pool keeps {@code poolSize} long-lived TCP connections to the switch, each
+ * multiplexing many in-flight messages. Nothing is connected while {@code host}
+ * is blank. Configurable via {@code iso8583.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "iso8583")
+@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+			// @Setter on all non-final fields, and @RequiredArgsConstructor
+@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+										// annotations)
+@NoArgsConstructor // Generates a constructor with no parameters
+@Builder(toBuilder = true)
+public class Iso8583Properties {
+
+	// Switch host, channels are only opened when set
+	private String host;
+
+	private int port;
+
+	// Number of persistent connections to the switch
+	@Builder.Default
+	private int poolSize = 2;
+
+	@Builder.Default
+	private int connectTimeoutMs = 5000;
+
+	// Max wait for the response of one message
+	@Builder.Default
+	private long responseTimeoutMs = 10000L;
+
+	// Send an 0800 echo when a channel was idle this long
+	@Builder.Default
+	private long echoIntervalMs = 30000L;
+
+	// First reconnect delay, doubled on every failed attempt
+	@Builder.Default
+	private long reconnectInitialBackoffMs = 500L;
+
+	// Upper bound of the reconnect delay
+	@Builder.Default
+	private long reconnectMaxBackoffMs = 30000L;
+
+	// j8583 templates & parse guides, classpath location
+	@Builder.Default
+	private String configPath = "iso8583/j8583-config.xml";
+
+	// File holding the highest reserved STAN, survives restarts
+	@Builder.Default
+	private String stanFile = "iso8583-stan.dat";
+
+	// STANs reserved (and persisted) at a time
+	@Builder.Default
+	private int stanReserveBlock = 1000;
+}
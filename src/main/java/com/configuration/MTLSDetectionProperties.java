@@ -0,0 +1,51 @@
+package com.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Settings of the MTLS requirement detection cache in
+ * {@link com.service.MTLSCertificationDetectionService}.
+ *
+ * A successful probe is trusted for {@code ttlMs}, a failed probe (target
+ * unreachable, timeout) only for {@code negativeTtlMs} so it is retried soon.
+ * Configurable via {@code mtls.detection.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "mtls.detection")
+@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+			// @Setter on all non-final fields, and @RequiredArgsConstructor
+@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+										// annotations)
+@NoArgsConstructor // Generates a constructor with no parameters
+@Builder(toBuilder = true)
+public class MTLSDetectionProperties {
+
+	// How long a probe result is served before it is refreshed in background
+	@Builder.Default
+	private long ttlMs = 600000L;
+
+	// How long a failed probe is cached before the target is probed again
+	@Builder.Default
+	private long negativeTtlMs = 30000L;
+
+	// Connect & handshake timeout of one probe
+	@Builder.Default
+	private int probeTimeoutMs = 3000;
+
+	// Max time a caller waits for the very first probe of an unknown target
+	@Builder.Default
+	private long firstProbeWaitMs = 3000L;
+
+	// Partner endpoints (host:port) probed in background at startup
+	@Builder.Default
+	private List<String> endpoints = new ArrayList<>();
+}
@@ -0,0 +1,54 @@
+package com.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * HTTP Basic users of the management port, the only principals holding
+ * authorities there, e.g. {@code ROLE_RATELIMITS_WRITE} /
+ * {@code ROLE_RATELIMITS_DELETE} for the ratelimits actuator endpoint (see
+ * SecurityConfig).
+ *
+ * Passwords are stored encoded with their {@code {id}} prefix, e.g.
+ * {@code {bcrypt}$2a$10$...}, and are best injected from the environment. A
+ * user with a blank password is left out. Configurable via
+ * {@code actuator.users}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "actuator")
+@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+			// @Setter on all non-final fields, and @RequiredArgsConstructor
+@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+										// annotations)
+@NoArgsConstructor // Generates a constructor with no parameters
+@Builder(toBuilder = true)
+public class ManagementUsersProperties {
+
+	@Builder.Default
+	private List<User> users = new ArrayList<>();
+
+	@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+				// @Setter on all non-final fields, and @RequiredArgsConstructor
+	@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+											// annotations)
+	@NoArgsConstructor // Generates a constructor with no parameters
+	@Builder(toBuilder = true)
+	public static class User {
+
+		private String username;
+
+		// Encoded with its {id} prefix, e.g. {bcrypt}...
+		private String password;
+
+		@Builder.Default
+		private List<String> authorities = new ArrayList<>();
+	}
+}
@@ -0,0 +1,59 @@
+package com.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Connection pool settings for the outbound HTTP clients managed by
+ * {@link com.service.OutboundHttpClientRegistry}.
+ *
+ * Every target host/port gets its own pool, so the per-route limit is
+ * effectively the limit for that partner while {@code maxTotal} caps the pool as
+ * a whole. Configurable via {@code outbound.http.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbound.http")
+@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+			// @Setter on all non-final fields, and @RequiredArgsConstructor
+@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+										// annotations)
+@NoArgsConstructor // Generates a constructor with no parameters
+@Builder(toBuilder = true)
+public class OutboundHttpProperties {
+
+	// Max connections held by one target's pool
+	@Builder.Default
+	private int maxTotal = 100;
+
+	// Max connections per route (host:port) within a pool
+	@Builder.Default
+	private int maxPerRoute = 50;
+
+	@Builder.Default
+	private int connectTimeoutMs = 5000;
+
+	@Builder.Default
+	private int socketTimeoutMs = 5000;
+
+	// Max time to wait for a free connection from the pool
+	@Builder.Default
+	private int connectionRequestTimeoutMs = 5000;
+
+	// Upper bound of how long an idle connection is kept alive, also applied when
+	// the server sends no Keep-Alive header
+	@Builder.Default
+	private long keepAliveMs = 30000L;
+
+	// Connections idle longer than this are closed by the eviction sweep
+	@Builder.Default
+	private long idleEvictMs = 60000L;
+
+	// Re-validate a pooled connection before reuse if it has been idle this long
+	@Builder.Default
+	private int validateAfterInactivityMs = 2000;
+}
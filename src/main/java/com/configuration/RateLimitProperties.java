@@ -1,12 +1,16 @@
 package com.configuration;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import com.service.ratelimit.RateLimitRules;
+
 import io.github.bucket4j.Bandwidth;
 import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
@@ -22,6 +26,10 @@ import lombok.NoArgsConstructor;
  * number of allowed requests
  * and how tokens are refilled over time.
  * 
+ * Endpoint keys are path patterns ({@code {variable}}, {@code *}, trailing
+ * {@code **}), compiled into {@link RateLimitRules}. The rules can be changed
+ * at runtime with {@link #update}, they are swapped in as a whole.
+ * 
  * Uses Bucket4j's Bandwidth to implement token bucket rate limiting per
  * endpoint.
  */
@@ -45,36 +53,93 @@ public class RateLimitProperties {
     @Builder.Default
     private long maxWaitMillis = 1000L;
 
+    /**
+     * Requests waiting for a token are suspended (servlet async) instead of
+     * holding a server thread for up to max-wait-millis, and resumed once the
+     * token may be used. Falls back to waiting on the thread when the request
+     * doesn't support async.
+     */
+    @Builder.Default
+    private boolean deferredAdmission = true;
+
     @Builder.Default
     protected Map<String, Rate> endpoints = new ConcurrentHashMap<>();
 
-    // A thread-safe map holding path-specific rate limit rules
-    private final Map<String, Bandwidth> limits = new ConcurrentHashMap<>();
+    /**
+     * Bucket store, {@code local} (lock-free table of longs, see
+     * LocalTokenBucketStore), {@code bucket4j} (a Bucket4j bucket per key in
+     * the JCache "buckets" cache) or {@code jdbc} (buckets shared by all nodes
+     * in the database, see JdbcRateLimitStore).
+     */
+    @Builder.Default
+    private String engine = "local";
+
+    @Builder.Default
+    private Local local = new Local();
+
+    @Builder.Default
+    private BucketCache cache = new BucketCache();
+
+    @Builder.Default
+    private Jdbc jdbc = new Jdbc();
+
+    // Default & endpoint limits compiled, replaced as a whole on update
+    private final AtomicReference<RateLimitRules> rules = new AtomicReference<>();
 
     @PostConstruct
-    public void init() {
-        // Default
-        limits.put("default", Bandwidth.builder()
-                .capacity(defaultRate.getCapacity())
-                .refillGreedy(defaultRate.getTokens(), Duration.ofSeconds(defaultRate.getPeriod()))
-                .build());
-
-        // Endpoints
-        endpoints.forEach((path, rate) -> limits.put(path, Bandwidth.builder()
+    public synchronized void init() {
+        rules.set(compile(defaultRate, endpoints));
+    }
+
+    /**
+     * Replaces the default & endpoint rates, e.g. from the ratelimits actuator
+     * endpoint. Nothing changes if the new rates don't compile.
+     *
+     * @return the new rules
+     * @throws IllegalArgumentException if a rate or path pattern is invalid
+     */
+    public synchronized RateLimitRules update(Rate defaultRate, Map<String, Rate> endpoints) {
+        RateLimitRules compiled = compile(defaultRate, endpoints);
+        this.defaultRate = defaultRate;
+        this.endpoints = new ConcurrentHashMap<>(endpoints);
+        rules.set(compiled);
+        return compiled;
+    }
+
+    private RateLimitRules compile(Rate defaultRate, Map<String, Rate> endpoints) {
+        if (defaultRate == null) {
+            throw new IllegalArgumentException("rate.limit.defaultRate is required");
+        }
+        Map<String, Bandwidth> bandwidths = new LinkedHashMap<>();
+        endpoints.forEach((path, rate) -> bandwidths.put(path, toBandwidth(rate)));
+        RateLimitRules current = rules.get();
+        return RateLimitRules.compile(current != null ? current.getVersion() + 1 : 1, toBandwidth(defaultRate),
+                bandwidths);
+    }
+
+    private static Bandwidth toBandwidth(Rate rate) {
+        return Bandwidth.builder()
                 .capacity(rate.getCapacity())
                 .refillGreedy(rate.getTokens(), Duration.ofSeconds(rate.getPeriod()))
-                .build()));
+                .build();
     }
 
     /**
      * Retrieves the {@link Bandwidth} limit configuration for a specific API path.
-     * If no specific limit is defined for the path, a default limit is applied.
+     * If no endpoint pattern matches the path, a default limit is applied.
      *
      * @param path the API endpoint path
      * @return the Bandwidth configuration for the given path
      */
     public Bandwidth getLimitForPath(String path) {
-        return limits.getOrDefault(path, limits.get("default")); // default
+        return rules.get().match(path).bandwidth();
+    }
+
+    /**
+     * Current compiled rules
+     */
+    public RateLimitRules getRules() {
+        return rules.get();
     }
 
     @Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
@@ -91,4 +156,77 @@ public class RateLimitProperties {
 
         private int period;
     }
+
+    @Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+          // @Setter on all non-final fields, and @RequiredArgsConstructor
+    @AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+                        // annotations)
+    @NoArgsConstructor // Generates a constructor with no parameters
+    @Builder(toBuilder = true)
+    public static class Local {
+
+        // Buckets held, 16 bytes each, rounded up to a power of two
+        @Builder.Default
+        private int maxKeys = 1 << 20;
+
+        // A bucket unused for this long is full again and its slot may be reused
+        @Builder.Default
+        private long idleEvictMillis = 60000L;
+
+        // Slots probed per key before the request is rejected (or let through, failOpen)
+        @Builder.Default
+        private int maxProbes = 32;
+
+        // Let a request whose key finds no free slot through unlimited instead of rejecting it
+        @Builder.Default
+        private boolean failOpen = false;
+    }
+
+    /**
+     * JCache "buckets" cache of the bucket4j engine.
+     */
+    @Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+          // @Setter on all non-final fields, and @RequiredArgsConstructor
+    @AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+                        // annotations)
+    @NoArgsConstructor // Generates a constructor with no parameters
+    @Builder(toBuilder = true)
+    public static class BucketCache {
+
+        // A bucket not read for this long is dropped, its key gets a full one again
+        @Builder.Default
+        private long expireAfterAccessMillis = 60000L;
+
+        // Buckets held, least valuable (W-TinyLFU) evicted first when exceeded
+        @Builder.Default
+        private long maximumSize = 100000L;
+    }
+
+    /**
+     * Database store of the jdbc engine.
+     */
+    @Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+          // @Setter on all non-final fields, and @RequiredArgsConstructor
+    @AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+                        // annotations)
+    @NoArgsConstructor // Generates a constructor with no parameters
+    @Builder(toBuilder = true)
+    public static class Jdbc {
+
+        // Tokens a node leases from a bucket per database call, capped at its capacity
+        @Builder.Default
+        private int leaseSize = 10;
+
+        // How often idle leases are looked for
+        @Builder.Default
+        private long reconcileMillis = 1000L;
+
+        // A lease unused for this long gives its tokens back to the other nodes
+        @Builder.Default
+        private long idleReturnMillis = 5000L;
+
+        // Buckets not leased from for this long are deleted, must exceed the longest refill period
+        @Builder.Default
+        private long purgeIdleMillis = 3600000L;
+    }
 }
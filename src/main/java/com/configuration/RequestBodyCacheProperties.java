@@ -0,0 +1,57 @@
+package com.configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Settings of the request body cache built by
+ * {@link CustomOncePerRequestFilter}.
+ *
+ * Bodies up to {@code memoryThreshold} stay in a pooled heap buffer, larger
+ * ones are spilled to a temp file in {@code spillDirectory} and memory-mapped
+ * for re-reads. Bodies above the max size of their route are rejected with
+ * HTTP 413 before being read when Content-Length is known. Configurable via
+ * {@code request.body.cache.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "request.body.cache")
+@Data // Shortcut for @ToString, @EqualsAndHashCode, @Getter on all fields, and
+			// @Setter on all non-final fields, and @RequiredArgsConstructor
+@AllArgsConstructor // Generates a constructor with parameters for all fields (regardless of type or
+										// annotations)
+@NoArgsConstructor // Generates a constructor with no parameters
+@Builder(toBuilder = true)
+public class RequestBodyCacheProperties {
+
+	// Largest body kept on heap, also the size of one pooled buffer
+	@Builder.Default
+	private int memoryThreshold = 256 * 1024;
+
+	// Number of heap buffers kept for reuse
+	@Builder.Default
+	private int poolSize = 32;
+
+	// Max body size of routes not listed in routeMaxSize
+	@Builder.Default
+	private long maxSize = 10L * 1024 * 1024;
+
+	// Max body size per route, Ant-style path pattern -> bytes, first match wins
+	@Builder.Default
+	private Map<String, Long> routeMaxSize = new LinkedHashMap<>();
+
+	// Directory of spilled bodies, system temp directory when blank
+	@Builder.Default
+	private String spillDirectory = "";
+
+	// Stream multipart requests without SIGNATURE header through uncached
+	@Builder.Default
+	private boolean skipMultipart = true;
+}
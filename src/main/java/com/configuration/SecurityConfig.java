@@ -1,6 +1,7 @@
 package com.configuration;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -13,6 +14,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.ExceptionHandlingConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -56,13 +60,17 @@ public class SecurityConfig implements WebMvcConfigurer {
 
 	private final ObjectMapper objectMapper;
 
+	private final ManagementUsersProperties managementUsersProperties;
+
 	public SecurityConfig(CustomOncePerRequestFilter customOncePerRequestFilter, Property property,
-			CustomHandlerInterceptor customHandlerInterceptor, Tool tool, ObjectMapper objectMapper) {
+			CustomHandlerInterceptor customHandlerInterceptor, Tool tool, ObjectMapper objectMapper,
+			ManagementUsersProperties managementUsersProperties) {
 		this.customOncePerRequestFilter = customOncePerRequestFilter;
 		this.property = property;
 		this.customHandlerInterceptor = customHandlerInterceptor;
 		this.tool = tool;
 		this.objectMapper = objectMapper;
+		this.managementUsersProperties = managementUsersProperties;
 	}
 
 	@Bean
@@ -114,7 +122,16 @@ public class SecurityConfig implements WebMvcConfigurer {
 	SecurityFilterChain managementSecurityFilterChain(HttpSecurity http) throws Exception {
 		// Management/actuator listener (port 8444)
 		return applyCommonConfig(http.securityMatcher(new CustomRequestMatcher(8444)))
-				.authorizeHttpRequests((requests) -> requests.requestMatchers("/actuator/**").permitAll()
+				// HTTP Basic users of actuator.users, the principals holding the
+				// authorities below
+				.userDetailsService(managementUserDetailsService())
+				.httpBasic(basic -> basic.authenticationEntryPoint((request, response, authEx) ->
+						writeErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "Unauthenticated access.")))
+				.authorizeHttpRequests((requests) -> requests
+						// Runtime rate limit changes, reading them stays open
+						.requestMatchers(HttpMethod.POST, "/actuator/ratelimits/**").hasAuthority("ROLE_RATELIMITS_WRITE")
+						.requestMatchers(HttpMethod.DELETE, "/actuator/ratelimits/**").hasAuthority("ROLE_RATELIMITS_DELETE")
+						.requestMatchers("/actuator/**").permitAll()
 						// .requestMatchers(HttpMethod.POST, "<endpoint - example,
 						// /v1/test>").hasAnyAuthority("SCOPE_<user type>_<action>_<permission:
 						// read/write>")
@@ -122,6 +139,27 @@ public class SecurityConfig implements WebMvcConfigurer {
 				).build();// Return the built filter chain
 	}
 
+	/**
+	 * Users of the management port from {@code actuator.users}, passwords encoded
+	 * with their {id} prefix (DelegatingPasswordEncoder). Users without a password
+	 * are left out.
+	 */
+	private InMemoryUserDetailsManager managementUserDetailsService() {
+		List<UserDetails> users = new ArrayList<>();
+		for (ManagementUsersProperties.User user : managementUsersProperties.getUsers()) {
+			if (user.getUsername() == null || user.getUsername().isBlank() || user.getPassword() == null
+					|| user.getPassword().isBlank()) {
+				continue;
+			}
+			users.add(User.withUsername(user.getUsername())
+					.password(user.getPassword())
+					.authorities(user.getAuthorities().toArray(String[]::new))
+					.build());
+		}
+		log.info("Management port: {} HTTP Basic user(s)", users.size());
+		return new InMemoryUserDetailsManager(users);
+	}
+
 	/**
 	 * Applies the security configuration shared by every filter chain (headers,
 	 * CSRF, CORS, stateless sessions, exception handling and the custom
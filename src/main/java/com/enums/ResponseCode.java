@@ -10,7 +10,8 @@ public enum ResponseCode {
 	FORBIDDEN_ACCESS(5, "Failed", "Forbidden - Insufficient permissions."),
 	INVALID_CREDENTIALS(6, "Failed", "Invalid username or password."),
 	TOKEN_EXPIRED(7, "Failed", "Token has expired."),
-	INVALID_TOKEN(8, "Failed", "Invalid token.");
+	INVALID_TOKEN(8, "Failed", "Invalid token."),
+	PAYLOAD_TOO_LARGE(9, "Failed", "Request body exceeds the allowed size.");
 
 	private final int response_code;
 	private final String response_status;
@@ -121,6 +121,16 @@ public class CustomResponseBodyAdvice implements ResponseBodyAdvice<Object> {
 				.build());
 	}
 
+	@ExceptionHandler(PayloadTooLargeException.class)
+	public ResponseEntity<ApiResponse> payloadTooLargeException(PayloadTooLargeException e) {
+		return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ApiResponse
+				.builder()
+				.resp_code(ResponseCode.PAYLOAD_TOO_LARGE.getResponse_code())
+				.resp_msg(ResponseCode.PAYLOAD_TOO_LARGE.getResponse_desc())
+				.datetime(tool.getTodayDateTimeInString())
+				.build());
+	}
+
 	@ExceptionHandler(MessagingException.class)
 	public ResponseEntity<ApiResponse> messagingException(MessagingException e) {
 		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse
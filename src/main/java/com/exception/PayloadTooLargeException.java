@@ -0,0 +1,17 @@
+package com.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for PayloadTooLargeException
+     * 
+     * @param message The error message to be passed to the parent RuntimeException
+     */
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
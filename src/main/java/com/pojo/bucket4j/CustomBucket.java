@@ -1,17 +1,24 @@
 package com.pojo.bucket4j;
 
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.TokensInheritanceStrategy;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class CustomBucket {
 
     private final AtomicReference<Bucket> bucket = new AtomicReference<>();
 
+    private volatile Bandwidth bandwidth;
+
     public CustomBucket(Bandwidth bandwidth) {
         this.bucket.set(Bucket.builder().addLimit(bandwidth).build());
+        this.bandwidth = bandwidth;
     }
 
     public boolean tryConsume(long tokens) {
@@ -29,12 +36,32 @@ public class CustomBucket {
         return this.bucket.get().asBlocking().tryConsume(tokens, maxWait);
     }
 
+    /**
+     * Non-blocking variant of {@link #tryConsume(long, Duration)}: the tokens are
+     * reserved now and the future completes on the scheduler once they may be
+     * used, no thread waits meanwhile. Completes with {@code false} if they
+     * aren't available within {@code maxWait}.
+     */
+    public CompletableFuture<Boolean> tryConsume(long tokens, Duration maxWait, ScheduledExecutorService scheduler) {
+        return this.bucket.get().asScheduler().tryConsume(tokens, maxWait, scheduler);
+    }
+
     public long getAvailableTokens() {
         return this.bucket.get().getAvailableTokens();
     }
 
-    // Swap bucket atomically when limits change
+    public Bandwidth getBandwidth() {
+        return this.bandwidth;
+    }
+
+    /**
+     * Applies a changed limit in place (ADDITIVE). When the capacity grows, the
+     * tokens consumed so far stay consumed, e.g. 3 of 10 left become 93 of 100.
+     * When it shrinks, the tokens left are kept, capped at the new capacity.
+     */
     public void updateBandwidth(Bandwidth bandwidth) {
-        this.bucket.set(Bucket.builder().addLimit(bandwidth).build());
+        this.bucket.get().replaceConfiguration(BucketConfiguration.builder().addLimit(bandwidth).build(),
+                TokensInheritanceStrategy.ADDITIVE);
+        this.bandwidth = bandwidth;
     }
 }
@@ -0,0 +1,186 @@
+package com.repo;
+import com.utilities.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import lombok.Cleanup;
+
+/**
+ * Token buckets shared by all nodes in table rate_limit_bucket.
+ *
+ * Nodes lease tokens from a bucket in chunks and give unused ones back, so the
+ * database is only hit once per chunk. Refills are computed from the database
+ * clock, which keeps the nodes consistent whatever their own clocks say.
+ */
+@Repository
+@ConditionalOnProperty(name = "rate.limit.engine", havingValue = "jdbc")
+public class RateLimitLeaseRepo {
+
+	private final DataSource dataSource;
+
+	public RateLimitLeaseRepo(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Tokens wanted from one bucket.
+	 *
+	 * @param keyHash      bucket key
+	 * @param capacity     bucket capacity
+	 * @param refillTokens tokens added per refill period
+	 * @param periodMs     refill period
+	 * @param wanted       tokens to lease
+	 */
+	public record LeaseRequest(long keyHash, long capacity, long refillTokens, long periodMs, long wanted) {
+	}
+
+	/**
+	 * Leases tokens from several buckets in one transaction, creating missing
+	 * buckets full. Rows are locked in key order, so concurrent batches of
+	 * different nodes don't deadlock.
+	 *
+	 * @return key hash to tokens granted, 0 if the bucket is empty
+	 */
+	public Map<Long, Long> lease(Logger log, List<LeaseRequest> requests) throws Throwable {
+		Map<Long, Long> granted = new HashMap<>();
+		if (requests.isEmpty()) {
+			return granted;
+		}
+		List<LeaseRequest> sorted = requests.stream().sorted(Comparator.comparingLong(LeaseRequest::keyHash)).toList();
+		try {
+			@Cleanup
+			Connection connDB = dataSource.getConnection();
+			connDB.setAutoCommit(false);
+			try {
+				@Cleanup
+				PreparedStatement insert = connDB.prepareStatement(
+						"INSERT IGNORE INTO rate_limit_bucket (key_hash, tokens, refilled_at) VALUES (?, ?, ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000))");
+				for (LeaseRequest request : sorted) {
+					insert.setLong(1, request.keyHash());
+					insert.setLong(2, request.capacity());
+					insert.addBatch();
+				}
+				insert.executeBatch();
+
+				Map<Long, long[]> buckets = new HashMap<>();
+				long now = 0;
+				StringBuilder sql = new StringBuilder(
+						"SELECT key_hash, tokens, refilled_at, ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000) FROM rate_limit_bucket WHERE key_hash IN (");
+				for (int i = 0; i < sorted.size(); i++) {
+					sql.append(i == 0 ? "?" : ", ?");
+				}
+				sql.append(") ORDER BY key_hash FOR UPDATE");
+				@Cleanup
+				PreparedStatement select = connDB.prepareStatement(sql.toString());
+				for (int i = 0; i < sorted.size(); i++) {
+					select.setLong(i + 1, sorted.get(i).keyHash());
+				}
+				@Cleanup
+				ResultSet rs = select.executeQuery();
+				while (rs.next()) {
+					buckets.put(rs.getLong(1), new long[] { rs.getLong(2), rs.getLong(3) });
+					now = rs.getLong(4);
+				}
+
+				@Cleanup
+				PreparedStatement update = connDB
+						.prepareStatement("UPDATE rate_limit_bucket SET tokens = ?, refilled_at = ? WHERE key_hash = ?");
+				for (LeaseRequest request : sorted) {
+					long[] bucket = buckets.get(request.keyHash());
+					if (bucket == null) {
+						granted.put(request.keyHash(), 0L);
+						continue;
+					}
+					long tokens = bucket[0];
+					long refilledAt = bucket[1];
+					// Greedy refill in whole tokens, the remainder of the period is kept
+					long refills = request.refillTokens() > 0 && now > refilledAt
+							? (now - refilledAt) * request.refillTokens() / request.periodMs()
+							: 0;
+					if (tokens + refills >= request.capacity()) {
+						tokens = request.capacity();
+						refilledAt = now;
+					} else if (refills > 0) {
+						tokens += refills;
+						refilledAt += refills * request.periodMs() / request.refillTokens();
+					}
+					long lease = Math.min(tokens, request.wanted());
+					granted.put(request.keyHash(), lease);
+					update.setLong(1, tokens - lease);
+					update.setLong(2, refilledAt);
+					update.setLong(3, request.keyHash());
+					update.addBatch();
+				}
+				update.executeBatch();
+				connDB.commit();
+			} catch (Throwable e) {
+				connDB.rollback();
+				throw e;
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
+		}
+		return granted;
+	}
+
+	/**
+	 * Gives unused leased tokens back, never above the bucket capacity.
+	 *
+	 * @param returns key hash to [tokens, capacity]
+	 */
+	public void giveBack(Logger log, Map<Long, long[]> returns) throws Throwable {
+		if (returns.isEmpty()) {
+			return;
+		}
+		try {
+			@Cleanup
+			Connection connDB = dataSource.getConnection();
+			@Cleanup
+			PreparedStatement ps = connDB
+					.prepareStatement("UPDATE rate_limit_bucket SET tokens = LEAST(?, tokens + ?) WHERE key_hash = ?");
+			for (Map.Entry<Long, long[]> entry : returns.entrySet()) {
+				ps.setLong(1, entry.getValue()[1]);
+				ps.setLong(2, entry.getValue()[0]);
+				ps.setLong(3, entry.getKey());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Deletes buckets not leased from for the given time, they'd be full anyway.
+	 *
+	 * @return number of buckets deleted
+	 */
+	public int purge(Logger log, long idleMillis) throws Throwable {
+		try {
+			@Cleanup
+			Connection connDB = dataSource.getConnection();
+			@Cleanup
+			PreparedStatement ps = connDB.prepareStatement(
+					"DELETE FROM rate_limit_bucket WHERE refilled_at < ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000) - ?");
+			ps.setLong(1, idleMillis);
+			return ps.executeUpdate();
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
+		}
+	}
+}
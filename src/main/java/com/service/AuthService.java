@@ -1,5 +1,20 @@
 package com.service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.codec.binary.Base64;
+
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -8,6 +23,7 @@ import org.springframework.stereotype.Service;
 import com.configuration.CustomAbstractAuthenticationToken;
 import com.utilities.JsonMasking;
 import com.utilities.LogUtil;
+import com.utilities.SignatureEnginePool;
 import com.utilities.Tool;
 
 import jakarta.servlet.ServletException;
@@ -19,6 +35,18 @@ public class AuthService {
 
 	private final JsonMasking jsonMasking;
 
+	private final SignatureReplayCache signatureReplayCache;
+
+	private final RsaKeyCacheService rsaKeyCacheService;
+
+	private final SignatureEnginePool signatureEnginePool;
+
+	/**
+	 * Bounds the RSA verifications of all running batches to the configured
+	 * parallelism, so a large batch can't take every core.
+	 */
+	private final Semaphore batchPermits;
+
 	/**
 	 * Maximum tolerated difference (in milliseconds) between the client supplied
 	 * timestamp and server time. Requests outside this window are rejected to limit
@@ -27,9 +55,23 @@ public class AuthService {
 	@Value("${security.signature.max-clock-skew-ms:300000}")
 	private long maxClockSkewMs;
 
-	public AuthService(Tool tool, JsonMasking jsonMasking) {
+	/**
+	 * Max number of items accepted by {@link #verifyBatch(Logger, List)}.
+	 */
+	@Value("${security.signature.batch.max-items:1000}")
+	private int batchMaxItems;
+
+	public AuthService(Tool tool, JsonMasking jsonMasking, SignatureReplayCache signatureReplayCache,
+			RsaKeyCacheService rsaKeyCacheService, SignatureEnginePool signatureEnginePool,
+			@Value("${security.signature.batch.parallelism:0}") int batchParallelism) {
 		this.tool = tool;
 		this.jsonMasking = jsonMasking;
+		this.signatureReplayCache = signatureReplayCache;
+		this.rsaKeyCacheService = rsaKeyCacheService;
+		this.signatureEnginePool = signatureEnginePool;
+		// 0 = one verification per available core
+		this.batchPermits = new Semaphore(
+				batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors());
 	}
 
 	/**
@@ -46,24 +88,33 @@ public class AuthService {
 	 *
 	 * Binding the method, URI and timestamp prevents a captured signature from being
 	 * replayed against a different endpoint, and the timestamp freshness check
-	 * limits how long a captured request remains usable.
+	 * limits how long a captured request remains usable. Within that window a
+	 * signature is accepted once only: a repeat is rejected by
+	 * {@link SignatureReplayCache} before any RSA work.
+	 *
+	 * <p>
+	 * The canonical form is never materialized: the verifier is fed the encoded
+	 * header line, then the body buffer in place, so memory stays flat however
+	 * large the body is.
+	 * </p>
 	 *
 	 * @param log          logger
 	 * @param method       HTTP method of the request
 	 * @param uri          request URI
 	 * @param timestamp    client supplied epoch-millisecond timestamp (X-TIMESTAMP)
-	 * @param requestBody  raw request body
+	 * @param requestBody  raw request body bytes, as received, between position and
+	 *                     limit; not consumed
 	 * @param signature    Base64 signature to verify
 	 * @param signingKeyId identifier of the RSA key to verify against
 	 * @return an authenticated token when the signature is valid
 	 * @throws ServletException if validation fails for any reason
 	 */
-	public Authentication isSignatureValid(Logger log, String method, String uri, String timestamp, String requestBody,
-			String signature, String signingKeyId) throws ServletException {
+	public Authentication isSignatureValid(Logger log, String method, String uri, String timestamp,
+			ByteBuffer requestBody, String signature, String signingKeyId) throws ServletException {
 		boolean verifySHA256RSA = false;
 		try {
 			// Log the body with sensitive fields masked (PII/PAN must never be logged raw)
-			log.info("Signature body: {}", maskBodyForLog(log, requestBody));
+			log.info("Signature body: {}", jsonMasking.maskedForLog(log, requestBody));
 			log.info("Using signing key ID: {}", signingKeyId);
 			// Reject malformed URIs instead of bypassing validation
 			if (uri == null || uri.isBlank() || uri.contains(" ")) {
@@ -71,12 +122,25 @@ public class AuthService {
 				throw new ServletException("Invalid URI format");
 			}
 			// Validate the timestamp freshness to limit the replay window
-			validateTimestamp(timestamp);
+			long requestTime = validateTimestamp(timestamp);
+			// Decoded once: the verifier and the replay cache see the same bytes, so
+			// Base64 variants of a signature (padding, last character's unused bits)
+			// are one signature
+			byte[] signatureBytes = Base64.decodeBase64(signature);
+			// Reject a signature already accepted within the window, no RSA work
+			if (signatureReplayCache.isReplay(signingKeyId, requestTime, signatureBytes)) {
+				log.warn("Replayed signature rejected for key ID: {}", signingKeyId);
+				throw new ServletException("Replayed request signature");
+			}
 			// Bind the signature to method + URI + timestamp + body to prevent replay
 			// against a different endpoint
-			String canonical = (method == null ? "" : method) + "\n" + uri + "\n" + timestamp + "\n"
-					+ (requestBody == null ? "" : requestBody);
-			verifySHA256RSA = tool.verifySHA256RSA(log, canonical, signature, signingKeyId);
+			verifySHA256RSA = tool.verifySHA256RSA(log, canonicalParts(method, uri, timestamp, requestBody),
+					signatureBytes, signingKeyId);
+			// Concurrent copies may all pass the lookup, only the first is recorded
+			if (verifySHA256RSA && !signatureReplayCache.record(signingKeyId, requestTime, signatureBytes)) {
+				log.warn("Replayed signature rejected for key ID: {}", signingKeyId);
+				throw new ServletException("Replayed request signature");
+			}
 			return new CustomAbstractAuthenticationToken(signature, null, verifySHA256RSA, null);
 		} catch (Throwable e) {
 			LogUtil.logError(log, e);
@@ -84,11 +148,147 @@ public class AuthService {
 		}
 	}
 
+	/**
+	 * Verifies many independently signed sub-requests of one bulk submission.
+	 *
+	 * <p>
+	 * Every item goes through the same checks as
+	 * {@link #isSignatureValid(Logger, String, String, String, ByteBuffer, String, String)}
+	 * (URI, timestamp window, replay, SHA256withRSA over the canonical form) but
+	 * a failing item doesn't fail the batch, its reason is reported in its
+	 * result. Public keys are looked up once per distinct key ID, then the RSA
+	 * verifications run on virtual threads, at most
+	 * {@code security.signature.batch.parallelism} at a time across all batches.
+	 * </p>
+	 *
+	 * @param log   logger
+	 * @param items signed sub-requests, at most
+	 *              {@code security.signature.batch.max-items}
+	 * @return one result per item, in item order
+	 * @throws ServletException if the batch is too large or is interrupted
+	 */
+	public List<BatchResult> verifyBatch(Logger log, List<SignedItem> items) throws ServletException {
+		try {
+			if (items == null || items.isEmpty()) {
+				return List.of();
+			}
+			if (items.size() > batchMaxItems) {
+				throw new ServletException("Batch of " + items.size() + " items exceeds the maximum of " + batchMaxItems);
+			}
+			long start = System.currentTimeMillis();
+			// Shared key lookups, one per distinct key ID
+			Map<String, Optional<PublicKey>> publicKeys = new HashMap<>();
+			for (SignedItem item : items) {
+				publicKeys.computeIfAbsent(item.signingKeyId(),
+						keyId -> Optional.ofNullable(keyId != null ? rsaKeyCacheService.getPublicKey(keyId) : null));
+			}
+			List<Future<BatchResult>> futures = new ArrayList<>(items.size());
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int i = 0; i < items.size(); i++) {
+					int index = i;
+					SignedItem item = items.get(i);
+					PublicKey publicKey = publicKeys.get(item.signingKeyId()).orElse(null);
+					futures.add(executor.submit(() -> verifyItem(index, item, publicKey)));
+				}
+			}
+			List<BatchResult> results = new ArrayList<>(items.size());
+			int valid = 0;
+			for (Future<BatchResult> future : futures) {
+				BatchResult result = future.get();
+				valid += result.valid() ? 1 : 0;
+				results.add(result);
+			}
+			log.info("Batch signature verification: {}/{} valid, {} key ID(s), {} ms", valid, items.size(),
+					publicKeys.size(), System.currentTimeMillis() - start);
+			return results;
+		} catch (ServletException e) {
+			LogUtil.logError(log, e);
+			throw e;
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			throw new ServletException("Batch signature validation failed: ".concat(String.valueOf(e.getMessage())));
+		}
+	}
+
+	private BatchResult verifyItem(int index, SignedItem item, PublicKey publicKey) {
+		try {
+			String uri = item.uri();
+			if (uri == null || uri.isBlank() || uri.contains(" ")) {
+				return BatchResult.failed(index, "Invalid URI format");
+			}
+			if (item.signature() == null || item.signature().isBlank()) {
+				return BatchResult.failed(index, "Signature is required");
+			}
+			if (publicKey == null) {
+				return BatchResult.failed(index, "Public key not found for signing key ID: " + item.signingKeyId());
+			}
+			long requestTime = validateTimestamp(item.timestamp());
+			byte[] signatureBytes = Base64.decodeBase64(item.signature());
+			if (signatureReplayCache.isReplay(item.signingKeyId(), requestTime, signatureBytes)) {
+				return BatchResult.failed(index, "Replayed request signature");
+			}
+			boolean verified;
+			batchPermits.acquire();
+			try {
+				verified = signatureEnginePool.verify("SHA256withRSA", item.signingKeyId(), publicKey,
+						canonicalParts(item.method(), uri, item.timestamp(), item.body()), signatureBytes);
+			} finally {
+				batchPermits.release();
+			}
+			if (!verified) {
+				return BatchResult.failed(index, "Invalid signature");
+			}
+			if (!signatureReplayCache.record(item.signingKeyId(), requestTime, signatureBytes)) {
+				return BatchResult.failed(index, "Replayed request signature");
+			}
+			return new BatchResult(index, true, null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return BatchResult.failed(index, "Interrupted");
+		} catch (Throwable e) {
+			return BatchResult.failed(index, String.valueOf(e.getMessage()));
+		}
+	}
+
+	/**
+	 * Canonical form {@code {method}\n{uri}\n{timestamp}\n{body}} as parts fed
+	 * to the verifier one after the other, the body is not copied.
+	 */
+	private static ByteBuffer[] canonicalParts(String method, String uri, String timestamp, ByteBuffer requestBody) {
+		ByteBuffer header = ByteBuffer.wrap(((method == null ? "" : method) + "\n" + uri + "\n" + timestamp + "\n")
+				.getBytes(StandardCharsets.UTF_8));
+		ByteBuffer body = requestBody == null ? ByteBuffer.allocate(0) : requestBody.duplicate();
+		return new ByteBuffer[] { header, body };
+	}
+
+	/**
+	 * One signed sub-request of a batch, same fields as the headers & body of a
+	 * single signed request.
+	 */
+	public record SignedItem(String method, String uri, String timestamp, ByteBuffer body, String signature,
+			String signingKeyId) {
+	}
+
+	/**
+	 * Outcome of one batch item, reason is null when valid.
+	 */
+	public record BatchResult(int index, boolean valid, String reason) {
+
+		static BatchResult failed(int index, String reason) {
+			return new BatchResult(index, false, reason);
+		}
+	}
+
 	/**
 	 * Ensures the supplied timestamp is present, numeric and within the allowed
 	 * clock-skew window relative to server time.
+	 *
+	 * @return the request time in epoch milliseconds
 	 */
-	private void validateTimestamp(String timestamp) throws ServletException {
+	private long validateTimestamp(String timestamp) throws ServletException {
 		if (timestamp == null || timestamp.isBlank()) {
 			throw new ServletException("X-TIMESTAMP header is required");
 		}
@@ -102,26 +302,6 @@ public class AuthService {
 		if (skew > maxClockSkewMs) {
 			throw new ServletException("Request timestamp outside the allowed window");
 		}
-	}
-
-	/**
-	 * Masks sensitive fields in a JSON body for safe logging. Non-JSON or
-	 * unparseable bodies are not logged verbatim.
-	 */
-	private String maskBodyForLog(Logger log, String requestBody) {
-		if (requestBody == null || requestBody.isBlank()) {
-			return "";
-		}
-		String trimmed = requestBody.trim();
-		// Only attempt JSON masking on payloads that look like JSON; anything else is
-		// omitted rather than risk logging sensitive data in the clear.
-		if (!(trimmed.startsWith("{") || trimmed.startsWith("["))) {
-			return "[non-JSON body omitted]";
-		}
-		try {
-			return jsonMasking.maskJson(log, trimmed);
-		} catch (Throwable e) {
-			return "[unmaskable body omitted]";
-		}
+		return requestTime;
 	}
 }
@@ -0,0 +1,315 @@
+package com.service;
+import com.utilities.LogUtil;
+
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import com.pojo.Property;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service that parses the client key store & trust store once and keeps the
+ * resulting KeyManager / TrustManagers in memory.
+ *
+ * <p>
+ * The material is held as an immutable {@link KeyMaterial} snapshot which is
+ * swapped atomically, so readers never see a half loaded store and the outbound
+ * hot path does no disk I/O. When the stores are plain files (not packed in a
+ * jar), a WatchService reloads them on change, so certificate rotation needs no
+ * restart. A failed reload keeps the previous snapshot.
+ * </p>
+ */
+@Slf4j
+@Service
+public class KeyMaterialService {
+
+	// Let a rotating tool finish writing before the store is read
+	private static final long RELOAD_SETTLE_MS = 500L;
+
+	private final Property property;
+
+	private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+	private final AtomicReference<KeyMaterial> current = new AtomicReference<>();
+
+	private final AtomicLong versionSequence = new AtomicLong();
+
+	private WatchService watchService;
+
+	private Thread watcherThread;
+
+	public KeyMaterialService(Property property) {
+		this.property = property;
+	}
+
+	/**
+	 * Immutable snapshot of parsed key material.
+	 *
+	 * @param version       Increases on every successful reload, lets consumers
+	 *                      detect that their SSLContext is outdated
+	 * @param keyManager    Default X509 key manager of the key store
+	 * @param trustManagers Trust managers of the trust store
+	 * @param certChains    Alias -> certificate chain of every private key entry
+	 * @param subjectIndex  Alias -> subject DN of its leaf certificate, keystore
+	 *                      order
+	 * @param issuerIndex   Issuer of a leaf certificate -> first alias issued by
+	 *                      it, for constant time client certificate selection
+	 */
+	public record KeyMaterial(long version, X509ExtendedKeyManager keyManager, TrustManager[] trustManagers,
+			Map<String, X509Certificate[]> certChains, Map<String, String> subjectIndex,
+			Map<X500Principal, String> issuerIndex) {
+	}
+
+	/**
+	 * Loads the stores on application startup and starts watching them
+	 */
+	@PostConstruct
+	public void init() {
+		reload();
+		startWatcher();
+	}
+
+	/**
+	 * Current key material snapshot, never null after startup.
+	 */
+	public KeyMaterial current() {
+		KeyMaterial keyMaterial = current.get();
+		if (keyMaterial == null) {
+			reload();
+			keyMaterial = current.get();
+		}
+		return keyMaterial;
+	}
+
+	/**
+	 * Parses both stores and swaps the snapshot. Keeps the previous snapshot if
+	 * anything fails.
+	 *
+	 * @return true if a new snapshot was published
+	 */
+	public synchronized boolean reload() {
+		try {
+			KeyStore trustStore = loadKeyStore(
+					property.getServer_ssl_trust_store(),
+					property.getServer_ssl_trust_store_password(),
+					property.getServer_ssl_trust_store_type());
+			TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			tmf.init(trustStore);
+
+			KeyStore keyStore = loadKeyStore(
+					property.getServer_ssl_key_store(),
+					property.getServer_ssl_key_store_password(),
+					property.getServer_ssl_key_store_type());
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			kmf.init(keyStore, property.getServer_ssl_key_store_password().toCharArray());
+			// Find the default X509ExtendedKeyManager
+			X509ExtendedKeyManager keyManager = null;
+			for (KeyManager km : kmf.getKeyManagers()) {
+				if (km instanceof X509ExtendedKeyManager) {
+					keyManager = (X509ExtendedKeyManager) km;
+					break;
+				}
+			}
+			if (keyManager == null) {
+				throw new IllegalStateException("No X509ExtendedKeyManager found in KeyManagerFactory");
+			}
+
+			Map<String, X509Certificate[]> certChains = extractCertChains(log, keyStore);
+			// Index the leaf certificates once per snapshot, handshakes only do lookups
+			Map<String, String> subjectIndex = new LinkedHashMap<>();
+			Map<X500Principal, String> issuerIndex = new HashMap<>();
+			for (Map.Entry<String, X509Certificate[]> entry : certChains.entrySet()) {
+				X509Certificate cert = entry.getValue()[0];
+				subjectIndex.put(entry.getKey(), cert.getSubjectX500Principal().getName());
+				issuerIndex.putIfAbsent(cert.getIssuerX500Principal(), entry.getKey());
+			}
+			KeyMaterial keyMaterial = new KeyMaterial(
+					versionSequence.incrementAndGet(),
+					keyManager,
+					tmf.getTrustManagers(),
+					Collections.unmodifiableMap(certChains),
+					Collections.unmodifiableMap(subjectIndex),
+					Collections.unmodifiableMap(issuerIndex));
+			current.set(keyMaterial);
+			log.info("Key material v{} loaded, {} client certificate chain(s)", keyMaterial.version(),
+					keyMaterial.certChains().size());
+			return true;
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			return false;
+		}
+	}
+
+	private KeyStore loadKeyStore(String location, String password, String type) throws Throwable {
+		Resource resource = resourceLoader.getResource(location);
+		KeyStore ks = KeyStore.getInstance(type);
+		@Cleanup
+		InputStream is = resource.getInputStream();
+		ks.load(is, password.toCharArray());
+		return ks;
+	}
+
+	/**
+	 * Collects the certificate chains of every private key entry.
+	 *
+	 * @return Map of alias -> certificate chain (X509Certificate[]), keeps the
+	 *         keystore's alias order
+	 */
+	private Map<String, X509Certificate[]> extractCertChains(Logger log, KeyStore ks) throws Throwable {
+		Map<String, X509Certificate[]> certChains = new LinkedHashMap<>();
+		// Iterate over all aliases in the keystore
+		for (Enumeration<String> e = ks.aliases(); e.hasMoreElements();) {
+			String alias = e.nextElement();
+			// Only consider entries that contain private keys (i.e., client certs)
+			if (ks.isKeyEntry(alias)) {
+				Certificate[] chain = ks.getCertificateChain(alias);
+				// Validate and convert to X509Certificate array
+				if (chain != null && chain.length > 0) {
+					X509Certificate[] x509Chain = convertToX509Chain(log, chain, alias);
+					if (x509Chain != null && x509Chain.length > 0) {
+						certChains.put(alias, x509Chain);
+					}
+				}
+			}
+		}
+		return certChains;
+	}
+
+	/**
+	 * Safely converts Certificate[] to X509Certificate[] with validation
+	 */
+	private X509Certificate[] convertToX509Chain(Logger log, Certificate[] chain, String alias) {
+		List<X509Certificate> result = new ArrayList<>();
+
+		for (int i = 0; i < chain.length; i++) {
+			if (chain[i] instanceof X509Certificate) {
+				result.add((X509Certificate) chain[i]);
+			} else {
+				log.warn("Certificate at index {} in chain for alias '{}' is not X509Certificate, type: {}",
+						i, alias, chain[i].getClass().getName());
+			}
+		}
+
+		if (result.isEmpty()) {
+			log.warn("No valid X509 certificates found in chain for alias '{}'", alias);
+			return null;
+		}
+
+		return result.toArray(new X509Certificate[0]);
+	}
+
+	/**
+	 * Watches the directories of the stores that live on the file system. Stores
+	 * packed inside the jar cannot change at runtime and are not watched.
+	 */
+	private void startWatcher() {
+		try {
+			Set<Path> files = new LinkedHashSet<>();
+			for (String location : List.of(property.getServer_ssl_key_store(), property.getServer_ssl_trust_store())) {
+				Resource resource = resourceLoader.getResource(location);
+				if (resource.isFile()) {
+					files.add(resource.getFile().toPath().toAbsolutePath());
+				}
+			}
+			if (files.isEmpty()) {
+				log.info("Key/trust store not on file system, reload on change disabled");
+				return;
+			}
+			watchService = FileSystems.getDefault().newWatchService();
+			Set<Path> directories = new LinkedHashSet<>();
+			for (Path file : files) {
+				if (directories.add(file.getParent())) {
+					file.getParent().register(watchService,
+							StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY);
+				}
+			}
+			watcherThread = Thread.ofPlatform().daemon().name("key-material-watcher").start(() -> watch(files));
+			log.info("Watching {} for key/trust store changes", directories);
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+
+	private void watch(Set<Path> files) {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey key = watchService.take();
+				boolean changed = false;
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path name && files.contains(directory.resolve(name))) {
+						changed = true;
+					}
+				}
+				key.reset();
+				if (changed) {
+					Thread.sleep(RELOAD_SETTLE_MS);
+					// Drop the events caused by the same write
+					WatchKey pending;
+					while ((pending = watchService.poll()) != null) {
+						pending.pollEvents();
+						pending.reset();
+					}
+					log.info("Key/trust store changed on disk, reloading");
+					reload();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Shutting down
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+
+	@PreDestroy
+	void shutdown() {
+		try {
+			if (watcherThread != null) {
+				watcherThread.interrupt();
+			}
+			if (watchService != null) {
+				watchService.close();
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+}
@@ -1,129 +1,213 @@
 package com.service;
 import com.utilities.LogUtil;
 
-import java.io.FileInputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.security.KeyStore;
 import java.security.Principal;
 import java.security.PrivateKey;
-import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.net.ssl.KeyManager;
-import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509ExtendedKeyManager;
+import javax.security.auth.x500.X500Principal;
 
 import org.slf4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import lombok.Cleanup;
+import com.configuration.MTLSDetectionProperties;
+import com.service.KeyMaterialService.KeyMaterial;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 public class MTLSCertificationDetectionService {
 
+	private static final int DEFAULT_HTTPS_PORT = 443;
+
+	private final MTLSDetectionProperties mTlsDetectionProperties;
+
+	// host:port -> last probe result
+	private final Map<String, Detection> detections = new ConcurrentHashMap<>();
+
+	// host:port -> probe currently running, so concurrent callers share one handshake
+	private final Map<String, CompletableFuture<Boolean>> inFlightProbes = new ConcurrentHashMap<>();
+
+	// Probes are blocking socket handshakes, cheap to park on virtual threads
+	private final ExecutorService probeExecutor = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("mtls-probe-", 0).factory());
+
+	public MTLSCertificationDetectionService(MTLSDetectionProperties mTlsDetectionProperties) {
+		this.mTlsDetectionProperties = mTlsDetectionProperties;
+	}
+
 	/**
-	 * Detects if MTLS is active on the target server
+	 * Cached probe result of one target.
+	 *
+	 * @param mtls      Whether the target requires a client certificate
+	 * @param failed    Probe did not complete (unreachable, timeout), cached with
+	 *                  the shorter negative TTL
+	 * @param expiresAt Epoch millis after which the result is refreshed
+	 */
+	private record Detection(boolean mtls, boolean failed, long expiresAt) {
+	}
+
+	/**
+	 * Detects if MTLS is active on the target server.
+	 *
+	 * Served from cache. An expired entry is still returned while a refresh runs
+	 * in background; only the very first call for an unknown target waits for the
+	 * probe, bounded by {@code mtls.detection.first-probe-wait-ms}.
 	 * 
 	 * @param host Target hostname
 	 * @param port Target port
 	 * @return true if MTLS is required, false otherwise
 	 */
 	public boolean isMTLSActive(String host, int port) {
-		SSLSocketFactory factory = null;
-		SSLSocket socket = null;
+		String key = toKey(host, port);
+		Detection detection = detections.get(key);
+		if (detection != null) {
+			if (detection.expiresAt() <= System.currentTimeMillis()) {
+				try {
+					detectAsync(host, port);// stale-while-revalidate
+				} catch (Throwable e) {
+					// Never fail the caller's request, the stale answer is served
+					LogUtil.logError(log, e);
+				}
+			}
+			return detection.mtls();
+		}
 		try {
-			factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
-			socket = (SSLSocket) factory.createSocket(host, port);
-			socket.startHandshake();
-			return false; // Handshake worked without client cert → not MTLS
-		} catch (SSLHandshakeException e) {
-			// Typical message: "Received fatal alert: handshake_failure"
-			return true; // Server expected client cert → mTLS required
+			return detectAsync(host, port).get(mTlsDetectionProperties.getFirstProbeWaitMs(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			log.warn("MTLS detection for {} still running, assume no MTLS for now", key);
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		} catch (Throwable e) {
+			LogUtil.logError(log, e);
 			return false;
-		} finally {
-			try {
-				if (socket != null) {
-					socket.close();
-				}
-			} catch (Throwable e) {
-			}
 		}
 	}
 
 	/**
-	 * Loads all client certificate chains from a given keystore.
-	 *
-	 * @param log              Logger for error reporting
-	 * @param keystorePath     Path to the keystore file (e.g., .jks or .p12)
-	 * @param keystorePassword Password for the keystore
-	 * @param keystoreType     Type of the keystore (e.g., "JKS", "PKCS12")
-	 * @return Map of alias -> certificate chain (X509Certificate[]), or empty map
-	 *         if error occurs
+	 * Probes the target on a virtual thread and caches the result. Concurrent
+	 * calls for the same target share the running probe.
+	 * 
+	 * @param host Target hostname
+	 * @param port Target port
+	 * @return Future completed with true if MTLS is required
 	 */
-	public Map<String, X509Certificate[]> loadClientCertChains(Logger log, String keystorePath, String keystorePassword,
-			String keystoreType) {
+	public CompletableFuture<Boolean> detectAsync(String host, int port) {
+		String key = toKey(host, port);
+		CompletableFuture<Boolean> running = inFlightProbes.get(key);
+		if (running != null) {
+			return running;
+		}
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		running = inFlightProbes.putIfAbsent(key, future);
+		if (running != null) {
+			return running;
+		}
+		// Cleanup & probe start outside the map's lock: a probe completing at once
+		// would otherwise remove its entry while the entry is being created
+		future.whenComplete((result, e) -> inFlightProbes.remove(key, future));
 		try {
-			@Cleanup
-			FileInputStream fis = new FileInputStream(keystorePath);
-			KeyStore ks = KeyStore.getInstance(keystoreType);
-			ks.load(fis, keystorePassword.toCharArray());
-
-			// Iterate over all aliases in the keystore
-			Map<String, X509Certificate[]> certChains = new HashMap<>();
-			for (Enumeration<String> e = ks.aliases(); e.hasMoreElements();) {
-				String alias = e.nextElement();
-				// Only consider entries that contain private keys (i.e., client certs)
-				if (ks.isKeyEntry(alias)) {
-					Certificate[] chain = ks.getCertificateChain(alias);
-					// Validate and convert to X509Certificate array
-					if (chain != null && chain.length > 0) {
-						X509Certificate[] x509Chain = convertToX509Chain(log, chain, alias);
-						if (x509Chain != null && x509Chain.length > 0) {
-							certChains.put(alias, x509Chain);
-						}
-					}
-				}
-			}
-			return certChains;
+			probeExecutor.execute(() -> future.complete(probe(key, host, port)));
 		} catch (Throwable e) {
-			LogUtil.logError(log, e);
-			return Collections.emptyMap();
+			// Executor shut down
+			future.completeExceptionally(e);
 		}
+		return future;
 	}
 
 	/**
-	 * Safely converts Certificate[] to X509Certificate[] with validation
+	 * Warms the cache for the configured partner endpoints so the first request
+	 * does not pay for the probe.
 	 */
-	private X509Certificate[] convertToX509Chain(Logger log, Certificate[] chain, String alias) {
-		List<X509Certificate> result = new ArrayList<>();
-
-		for (int i = 0; i < chain.length; i++) {
-			if (chain[i] instanceof X509Certificate) {
-				result.add((X509Certificate) chain[i]);
-			} else {
-				log.warn("Certificate at index {} in chain for alias '{}' is not X509Certificate, type: {}",
-						i, alias, chain[i].getClass().getName());
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		for (String endpoint : mTlsDetectionProperties.getEndpoints()) {
+			try {
+				int idx = endpoint.lastIndexOf(':');
+				String host = idx > 0 ? endpoint.substring(0, idx).trim() : endpoint.trim();
+				int port = idx > 0 ? Integer.parseInt(endpoint.substring(idx + 1).trim()) : DEFAULT_HTTPS_PORT;
+				detectAsync(host, port).thenAccept(mtls -> log.info("MTLS detection warm-up {}:{} -> {}", host, port, mtls));
+			} catch (Throwable e) {
+				LogUtil.logError(log, e);
 			}
 		}
+	}
 
-		if (result.isEmpty()) {
-			log.warn("No valid X509 certificates found in chain for alias '{}'", alias);
-			return null;
-		}
+	/**
+	 * Removes the cached result of one target, next call probes again.
+	 */
+	public void invalidate(String host, int port) {
+		detections.remove(toKey(host, port));
+	}
 
-		return result.toArray(new X509Certificate[0]);
+	@PreDestroy
+	void shutdown() {
+		probeExecutor.shutdownNow();
+	}
+
+	private static String toKey(String host, int port) {
+		return host.toLowerCase().concat(":").concat(String.valueOf(port));
+	}
+
+	/**
+	 * Does the actual handshake against the target and records the result.
+	 */
+	private boolean probe(String key, String host, int port) {
+		long now = System.currentTimeMillis();
+		SSLSocketFactory factory = null;
+		SSLSocket socket = null;
+		try {
+			factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+			socket = (SSLSocket) factory.createSocket();
+			socket.connect(new InetSocketAddress(host, port), mTlsDetectionProperties.getProbeTimeoutMs());
+			socket.setSoTimeout(mTlsDetectionProperties.getProbeTimeoutMs());
+			socket.startHandshake();
+			// Handshake worked without client cert → not MTLS
+			detections.put(key, new Detection(false, false, now + mTlsDetectionProperties.getTtlMs()));
+			return false;
+		} catch (SSLHandshakeException e) {
+			// Typical message: "Received fatal alert: handshake_failure"
+			// Server expected client cert → mTLS required
+			detections.put(key, new Detection(true, false, now + mTlsDetectionProperties.getTtlMs()));
+			return true;
+		} catch (Throwable e) {
+			log.warn("MTLS detection for {} failed: {}", key, e.getMessage());
+			// Keep the last known answer if any, only retry sooner
+			Detection previous = detections.get(key);
+			boolean mtls = previous != null && !previous.failed() && previous.mtls();
+			detections.put(key, new Detection(mtls, true, now + mTlsDetectionProperties.getNegativeTtlMs()));
+			return mtls;
+		} finally {
+			try {
+				if (socket != null) {
+					socket.close();
+				}
+			} catch (Throwable e) {
+			}
+		}
 	}
 
 	/**
@@ -140,22 +224,47 @@ public class MTLSCertificationDetectionService {
 	 * to the base (default) KeyManager implementation.
 	 */
 	public class CustomX509ExtendedKeyManager extends X509ExtendedKeyManager {
+		// Bound of the per issuer-set result cache, servers advertise few distinct sets
+		private static final int MAX_CACHED_ISSUER_SETS = 256;
+		// Cached marker of an issuer set none of our certificates matches
+		private static final String NO_MATCH = "";
+
 		private final X509ExtendedKeyManager baseKeyManager;
-		private final Map<String, X509Certificate[]> certChains;
-		private final List<String> preferredSubjects; // optional config e.g. ["CN=BankA-Client1"]
+		private final Map<X500Principal, String> issuerIndex;
+		// Alias matching the preferred subjects, resolved once since neither side changes
+		private final String preferredAlias;
+		// Server requested issuer set -> chosen alias (or NO_MATCH)
+		private final Map<List<Principal>, String> issuerSetCache = new ConcurrentHashMap<>();
 
 		/**
 		 * @param baseKeyManager    The default system KeyManager (delegated for
 		 *                          fallback).
-		 * @param certChains        Map of keystore aliases to their certificate chains.
+		 * @param keyMaterial       Key material snapshot holding the subject and
+		 *                          issuer indexes of the client certificates.
 		 * @param preferredSubjects Optional list of preferred subject DN patterns
+		 *                          e.g. ["CN=BankA-Client1"]
 		 */
-		public CustomX509ExtendedKeyManager(X509ExtendedKeyManager baseKeyManager,
-				Map<String, X509Certificate[]> certChains, List<String> preferredSubjects) {
+		public CustomX509ExtendedKeyManager(X509ExtendedKeyManager baseKeyManager, KeyMaterial keyMaterial,
+				List<String> preferredSubjects) {
 			this.baseKeyManager = baseKeyManager;
-			this.certChains = certChains;
-			this.preferredSubjects = preferredSubjects != null && !preferredSubjects.isEmpty() ? preferredSubjects
-					: Collections.emptyList();
+			this.issuerIndex = keyMaterial.issuerIndex();
+			this.preferredAlias = resolvePreferredAlias(keyMaterial.subjectIndex(),
+					preferredSubjects != null ? preferredSubjects : Collections.emptyList());
+		}
+
+		/**
+		 * First alias whose subject DN contains a preferred subject, preferred
+		 * subjects in priority order.
+		 */
+		private static String resolvePreferredAlias(Map<String, String> subjectIndex, List<String> preferredSubjects) {
+			for (String preferred : preferredSubjects) {
+				for (Map.Entry<String, String> entry : subjectIndex.entrySet()) {
+					if (entry.getValue().contains(preferred)) {
+						return entry.getKey(); // Found a cert with matching Subject DN
+					}
+				}
+			}
+			return null;
 		}
 
 		/**
@@ -170,32 +279,31 @@ public class MTLSCertificationDetectionService {
 
 		@Override
 		public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
-			// Step 1: Try to match against preferred subjects
-			if (preferredSubjects != null && !preferredSubjects.isEmpty()) {
-				for (String preferred : preferredSubjects) {
-					for (Map.Entry<String, X509Certificate[]> entry : certChains.entrySet()) {
-						if (entry.getValue() != null && entry.getValue().length > 0) {
-							X509Certificate cert = entry.getValue()[0];
-							String subjectDN = cert.getSubjectX500Principal().getName();
-							if (subjectDN.contains(preferred)) {
-								return entry.getKey(); // Found a cert with matching Subject DN
-							}
-						}
-					}
-				}
+			// Step 1: Preferred subject match, precomputed
+			if (preferredAlias != null) {
+				return preferredAlias;
 			}
 
 			// Step 2: Try to match against server-requested issuers
 			if (issuers != null && issuers.length > 0) {
-				for (Principal issuer : issuers) {
-					for (Map.Entry<String, X509Certificate[]> entry : certChains.entrySet()) {
-						if (entry.getValue() != null && entry.getValue().length > 0) {
-							X509Certificate cert = entry.getValue()[0];
-							if (cert.getIssuerX500Principal().equals(issuer)) {
-								return entry.getKey(); // Found a cert issued by requested CA
-							}
+				List<Principal> issuerSet = List.of(issuers);
+				String alias = issuerSetCache.get(issuerSet);
+				if (alias == null) {
+					alias = NO_MATCH;
+					for (Principal issuer : issuers) {
+						String candidate = issuerIndex.get(issuer);
+						if (candidate != null) {
+							alias = candidate; // Found a cert issued by requested CA
+							break;
 						}
 					}
+					if (issuerSetCache.size() >= MAX_CACHED_ISSUER_SETS) {
+						issuerSetCache.clear();
+					}
+					issuerSetCache.put(issuerSet, alias);
+				}
+				if (alias != NO_MATCH) {
+					return alias;
 				}
 			}
 
@@ -225,65 +333,34 @@ public class MTLSCertificationDetectionService {
 	}
 
 	/**
-	 * Creates an SSLContext with optional smart certificate selection
+	 * Creates an SSLContext with optional smart certificate selection from the
+	 * already parsed key material, no disk I/O involved.
 	 * 
 	 * @param log                 Logger instance
 	 * @param server_ssl_protocol SSL protocol (e.g., "TLS")
-	 * @param keystorePath        Path to keystore
-	 * @param keystorePassword    Keystore password
-	 * @param keystoreType        Keystore type (e.g., "JKS", "PKCS12")
-	 * @param truststorePath      Path to truststore
-	 * @param truststorePassword  Truststore password
-	 * @param truststoreType      Truststore type
+	 * @param keyMaterial         Key/trust store snapshot of KeyMaterialService
 	 * @param onlyTrustManager    If true, only initialize with TrustManager (no
 	 *                            client certs)
 	 * @param preferredSubjects   Optional list of preferred certificate subjects
 	 *                            for smart selection
 	 * @return Configured SSLContext or null if error occurs
 	 */
-	public SSLContext createSSLContext(Logger log, String server_ssl_protocol, String keystorePath,
-			String keystorePassword, String keystoreType, String truststorePath, String truststorePassword,
-			String truststoreType, boolean onlyTrustManager, List<String> preferredSubjects) {
+	public SSLContext createSSLContext(Logger log, String server_ssl_protocol, KeyMaterial keyMaterial,
+			boolean onlyTrustManager, List<String> preferredSubjects) {
 		SSLContext sslContext = null;
 		try {
 			sslContext = SSLContext.getInstance(server_ssl_protocol);// TLS is general name, which version to pickup is depend
 																																// on JVM setting
-			// Initialize TrustManager
-			TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-			KeyStore trustStore = KeyStore.getInstance(truststoreType);
-			// Load truststore from file
-			@Cleanup
-			FileInputStream fis = new FileInputStream(truststorePath);
-			trustStore.load(fis, truststorePassword.toCharArray());
-			tmf.init(trustStore);
 			// If only TrustManager is needed (no client cert)
 			if (onlyTrustManager) {
-				sslContext.init(null, tmf.getTrustManagers(), null);
+				sslContext.init(null, keyMaterial.trustManagers(), null);
 				log.info("SSLContext initialized with TrustManager only (no client certificates)");
 				return sslContext;
 			}
-			// Initialize KeyManager with client certificates
-			KeyStore keyStore = KeyStore.getInstance(keystoreType);
-			fis = new FileInputStream(keystorePath);
-			keyStore.load(fis, keystorePassword.toCharArray());
-			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-			kmf.init(keyStore, keystorePassword.toCharArray());
-			// Find the default X509ExtendedKeyManager
-			X509ExtendedKeyManager defaultKm = null;
-			for (KeyManager km : kmf.getKeyManagers()) {
-				if (km instanceof X509ExtendedKeyManager) {
-					defaultKm = (X509ExtendedKeyManager) km;
-					break;
-				}
-			}
-			if (defaultKm == null) {
-				throw new IllegalStateException("No X509ExtendedKeyManager found in KeyManagerFactory");
-			}
 			// Create custom KeyManager with smart certificate selection
-			Map<String, X509Certificate[]> certChains = loadClientCertChains(log, keystorePath, keystorePassword,
-					keystoreType);
-			CustomX509ExtendedKeyManager smartKm = new CustomX509ExtendedKeyManager(defaultKm, certChains, preferredSubjects);
-			sslContext.init(new KeyManager[] { smartKm }, tmf.getTrustManagers(), null);
+			CustomX509ExtendedKeyManager smartKm = new CustomX509ExtendedKeyManager(keyMaterial.keyManager(),
+					keyMaterial, preferredSubjects);
+			sslContext.init(new KeyManager[] { smartKm }, keyMaterial.trustManagers(), null);
 			log.info("SSLContext initialized with custom KeyManager (smart certificate selection enabled)");
 			return sslContext;
 		} catch (Throwable e) {
@@ -0,0 +1,391 @@
+package com.service;
+import com.utilities.LogUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.configuration.OutboundHttpProperties;
+import com.pojo.Property;
+import com.service.KeyMaterialService.KeyMaterial;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of long-lived outbound HTTP clients, one entry per target host:port.
+ *
+ * <p>
+ * Building a client is expensive: the MTLS probe, keystore parsing and
+ * SSLContext creation, and a TLS handshake for every fresh connection. Each
+ * entry therefore builds its SSLContext once and keeps a pooled connection
+ * manager, so repeated calls to the same partner reuse both the context and the
+ * already handshaked connections.
+ * </p>
+ *
+ * <p>
+ * Clients handed out by this registry are shared and must NOT be closed by the
+ * caller; close the response instead. Pools are closed on shutdown.
+ * </p>
+ *
+ * Pool usage is exported as Micrometer gauges
+ * ({@code outbound_http_pool_leased/available/pending}) tagged by target.
+ */
+@Slf4j
+@Service
+public class OutboundHttpClientRegistry {
+
+	private final MTLSCertificationDetectionService mTlsCertificationDetectionService;
+
+	private final KeyMaterialService keyMaterialService;
+
+	private final Property property;
+
+	private final OutboundHttpProperties outboundHttpProperties;
+
+	private final MeterRegistry meterRegistry;
+
+	// host:port -> pooled clients for that target
+	private final Map<String, ClientEntry> entries = new ConcurrentHashMap<>();
+
+	// Entries replaced after the target's MTLS requirement changed, closed once
+	// their in-flight requests released the connections
+	private final Queue<ClientEntry> retiredEntries = new ConcurrentLinkedQueue<>();
+
+	public OutboundHttpClientRegistry(MTLSCertificationDetectionService mTlsCertificationDetectionService,
+			KeyMaterialService keyMaterialService, Property property, OutboundHttpProperties outboundHttpProperties, MeterRegistry meterRegistry) {
+		this.mTlsCertificationDetectionService = mTlsCertificationDetectionService;
+		this.keyMaterialService = keyMaterialService;
+		this.property = property;
+		this.outboundHttpProperties = outboundHttpProperties;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Returns the shared, pooled synchronous client for the given target, creating
+	 * it on first use.
+	 *
+	 * @param log  Logger instance
+	 * @param host Target hostname
+	 * @param port Target port
+	 * @return Shared CloseableHttpClient (do not close)
+	 */
+	public CloseableHttpClient getClient(Logger log, String host, int port) {
+		return resolveEntry(log, host, port).syncClient(log);
+	}
+
+	/**
+	 * Returns the shared, pooled and already started asynchronous client for the
+	 * given target, creating it on first use.
+	 *
+	 * @param log  Logger instance
+	 * @param host Target hostname
+	 * @param port Target port
+	 * @return Shared CloseableHttpAsyncClient (do not close)
+	 */
+	public CloseableHttpAsyncClient getAsyncClient(Logger log, String host, int port) {
+		return resolveEntry(log, host, port).asyncClient(log);
+	}
+
+	/**
+	 * Default request config applied to every pooled client.
+	 */
+	public RequestConfig requestConfig() {
+		return RequestConfig.custom()
+				.setConnectTimeout(outboundHttpProperties.getConnectTimeoutMs())// in miliseconds
+				.setSocketTimeout(outboundHttpProperties.getSocketTimeoutMs())// in miliseconds
+				.setConnectionRequestTimeout(outboundHttpProperties.getConnectionRequestTimeoutMs())// in miliseconds
+				.build();
+	}
+
+	private ClientEntry resolveEntry(Logger log, String host, int port) {
+		String key = host.toLowerCase().concat(":").concat(String.valueOf(port));
+		// Check if MTLS is required, served from the detection cache
+		boolean mtls = mTlsCertificationDetectionService.isMTLSActive(host, port);
+		KeyMaterial keyMaterial = keyMaterialService.current();
+		ClientEntry entry = entries.get(key);
+		if (entry != null && entry.matches(mtls, keyMaterial)) {
+			return entry;
+		}
+		return entries.compute(key, (k, existing) -> {
+			if (existing != null && existing.matches(mtls, keyMaterial)) {
+				return existing;
+			}
+			if (existing != null) {
+				log.info("MTLS requirement or key material of {} changed, rebuilding client", k);
+				// Gauges are keyed by target, free them for the new entry right away
+				existing.removeMeters();
+				retiredEntries.add(existing);
+			}
+			return new ClientEntry(k, mtls, keyMaterial.version(), createSSLContext(log, mtls, keyMaterial));
+		});
+	}
+
+	/**
+	 * Builds the SSLContext of one target. Runs once per target, or again when the
+	 * target's MTLS requirement or the key material changes.
+	 */
+	private SSLContext createSSLContext(Logger log, boolean mtls, KeyMaterial keyMaterial) {
+		// Create SSL context with smart cert selection if needed
+		boolean useSmartSelection = mtls && keyMaterial.certChains().size() > 1;
+		if (useSmartSelection) {
+			log.info("MTLS active and multiple certs found — enabling smart selection");
+		}
+		return mTlsCertificationDetectionService.createSSLContext(
+				log,
+				property.getServer_ssl_protocol(),
+				keyMaterial,
+				!useSmartSelection,
+				null);
+	}
+
+	/**
+	 * Caps the keep-alive duration advertised by the server (or used when the
+	 * server advertises none) at {@code outbound.http.keep-alive-ms}.
+	 */
+	private ConnectionKeepAliveStrategy keepAliveStrategy() {
+		long keepAliveMs = outboundHttpProperties.getKeepAliveMs();
+		return (response, context) -> {
+			long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+		};
+	}
+
+	/**
+	 * Registers leased/available/pending gauges for one pool.
+	 */
+	private void registerPoolGauges(List<Meter> meters, String target, String type, ConnPoolControl<?> pool) {
+		meters.add(Gauge.builder("outbound_http_pool_leased", pool, p -> p.getTotalStats().getLeased())
+				.description("Connections currently leased from the outbound HTTP pool")
+				.tag("target", target)
+				.tag("type", type)
+				.register(meterRegistry));
+		meters.add(Gauge.builder("outbound_http_pool_available", pool, p -> p.getTotalStats().getAvailable())
+				.description("Idle connections available in the outbound HTTP pool")
+				.tag("target", target)
+				.tag("type", type)
+				.register(meterRegistry));
+		meters.add(Gauge.builder("outbound_http_pool_pending", pool, p -> p.getTotalStats().getPending())
+				.description("Requests waiting for a connection from the outbound HTTP pool")
+				.tag("target", target)
+				.tag("type", type)
+				.register(meterRegistry));
+	}
+
+	/**
+	 * Closes expired and idle connections in every pool. Connections idle longer
+	 * than {@code outbound.http.idle-evict-ms} are most likely already dropped by
+	 * the partner or a NAT in between.
+	 */
+	@Scheduled(fixedDelayString = "${outbound.http.idle-evict-ms:60000}")
+	public void evictIdleConnections() {
+		long idleEvictMs = outboundHttpProperties.getIdleEvictMs();
+		entries.values().forEach(entry -> entry.evict(idleEvictMs));
+		retiredEntries.removeIf(entry -> {
+			entry.evict(idleEvictMs);
+			if (entry.leased() > 0) {
+				return false;
+			}
+			entry.close();
+			return true;
+		});
+	}
+
+	/**
+	 * Current pool statistics per target, mainly for troubleshooting.
+	 */
+	public Map<String, PoolStats> getPoolStats() {
+		Map<String, PoolStats> result = new ConcurrentHashMap<>();
+		entries.forEach((key, entry) -> {
+			if (entry.connectionManager != null) {
+				result.put(key, entry.connectionManager.getTotalStats());
+			}
+		});
+		return result;
+	}
+
+	@PreDestroy
+	void shutdown() {
+		log.info("Closing {} outbound HTTP client pool(s)", entries.size());
+		entries.values().forEach(ClientEntry::close);
+		entries.clear();
+		retiredEntries.forEach(ClientEntry::close);
+		retiredEntries.clear();
+	}
+
+	/**
+	 * Pooled clients of one target host:port. The sync and async clients are
+	 * created lazily since most targets only use one of them, and the async client
+	 * starts its own I/O reactor threads.
+	 */
+	private final class ClientEntry {
+
+		private final String key;
+
+		private final boolean mtls;
+
+		private final long keyMaterialVersion;
+
+		private final SSLContext sslContext;
+
+		private final List<Meter> meters = new ArrayList<>();
+
+		private PoolingHttpClientConnectionManager connectionManager;
+
+		private CloseableHttpClient syncClient;
+
+		private PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+		private CloseableHttpAsyncClient asyncClient;
+
+		private ClientEntry(String key, boolean mtls, long keyMaterialVersion, SSLContext sslContext) {
+			this.key = key;
+			this.mtls = mtls;
+			this.keyMaterialVersion = keyMaterialVersion;
+			this.sslContext = sslContext;
+		}
+
+		private boolean matches(boolean mtls, KeyMaterial keyMaterial) {
+			return this.mtls == mtls && keyMaterialVersion == keyMaterial.version();
+		}
+
+		private synchronized CloseableHttpClient syncClient(Logger log) {
+			if (syncClient == null) {
+				// Enforce TLS versions + hostname verification
+				SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(
+						sslContext,
+						property.getServer_ssl_enabled_protocols(),
+						null,
+						SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+				Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("https", sslConnectionSocketFactory)
+						.register("http", PlainConnectionSocketFactory.getSocketFactory())
+						.build();
+				connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+				connectionManager.setMaxTotal(outboundHttpProperties.getMaxTotal());
+				connectionManager.setDefaultMaxPerRoute(outboundHttpProperties.getMaxPerRoute());
+				connectionManager.setValidateAfterInactivity(outboundHttpProperties.getValidateAfterInactivityMs());
+				syncClient = HttpClients.custom()
+						.setConnectionManager(connectionManager)
+						.setKeepAliveStrategy(keepAliveStrategy())
+						.setDefaultRequestConfig(requestConfig())
+						.build();
+				registerPoolGauges(meters, key, "sync", connectionManager);
+				log.info("Created pooled HTTP client for {}", key);
+			}
+			return syncClient;
+		}
+
+		private synchronized CloseableHttpAsyncClient asyncClient(Logger log) {
+			if (asyncClient == null) {
+				try {
+					IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+							.setConnectTimeout(outboundHttpProperties.getConnectTimeoutMs())
+							.setSoTimeout(outboundHttpProperties.getSocketTimeoutMs())
+							.build();
+					// Enforce TLS versions + hostname verification
+					Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder
+							.<SchemeIOSessionStrategy>create()
+							.register("https", new SSLIOSessionStrategy(
+									sslContext,
+									property.getServer_ssl_enabled_protocols(),
+									null,
+									SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+							.register("http", NoopIOSessionStrategy.INSTANCE)
+							.build();
+					asyncConnectionManager = new PoolingNHttpClientConnectionManager(
+							new DefaultConnectingIOReactor(ioReactorConfig), sessionStrategyRegistry);
+					asyncConnectionManager.setMaxTotal(outboundHttpProperties.getMaxTotal());
+					asyncConnectionManager.setDefaultMaxPerRoute(outboundHttpProperties.getMaxPerRoute());
+					asyncClient = HttpAsyncClients.custom()
+							.setConnectionManager(asyncConnectionManager)
+							.setKeepAliveStrategy(keepAliveStrategy())
+							.setDefaultRequestConfig(requestConfig())
+							.build();
+					asyncClient.start();
+					registerPoolGauges(meters, key, "async", asyncConnectionManager);
+					log.info("Created pooled async HTTP client for {}", key);
+				} catch (Throwable e) {
+					LogUtil.logError(log, e);
+					throw new IllegalStateException("Unable to create async HTTP client for " + key, e);
+				}
+			}
+			return asyncClient;
+		}
+
+		private synchronized void evict(long idleEvictMs) {
+			if (connectionManager != null) {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS);
+			}
+			if (asyncConnectionManager != null) {
+				asyncConnectionManager.closeExpiredConnections();
+				asyncConnectionManager.closeIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		private synchronized int leased() {
+			int leased = 0;
+			if (connectionManager != null) {
+				leased += connectionManager.getTotalStats().getLeased();
+			}
+			if (asyncConnectionManager != null) {
+				leased += asyncConnectionManager.getTotalStats().getLeased();
+			}
+			return leased;
+		}
+
+		private synchronized void removeMeters() {
+			meters.forEach(meterRegistry::remove);
+			meters.clear();
+		}
+
+		private synchronized void close() {
+			removeMeters();
+			try {
+				if (syncClient != null) {
+					syncClient.close();
+				}
+				if (asyncClient != null) {
+					asyncClient.close();
+				}
+			} catch (Throwable e) {
+				LogUtil.logError(log, e);
+			}
+		}
+	}
+}
@@ -1,66 +1,236 @@
 package com.service;
+import com.utilities.JsonFieldExtractor;
 import com.utilities.LogUtil;
 
 import com.configuration.RateLimitProperties;
 import com.pojo.bucket4j.CustomBucket;
+import com.service.ratelimit.JCacheBucketStore;
+import com.service.ratelimit.LocalTokenBucketStore;
+import com.service.ratelimit.RateLimitKeyPlan;
+import com.service.ratelimit.RateLimitRules;
+import com.service.ratelimit.RateLimitStore;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import io.github.bucket4j.Bandwidth;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.HandlerMapping;
 
-import javax.cache.Cache;
 import javax.cache.CacheManager;
 
-import java.io.BufferedReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RateLimitService {
 
-	private final Cache<String, CustomBucket> cache;
+	/**
+	 * Request attribute holding the rate limit key's request body fields, field
+	 * path to raw value, once read.
+	 */
+	public static final String BODY_FIELDS_ATTRIBUTE = RateLimitService.class.getName() + ".BODY_FIELDS";
 
 	private final RateLimitProperties rateLimitProperties;
 
 	private final ObjectMapper objectMapper;
 
+	// Bucket4j buckets in the JCache "buckets" cache, also backs resolveBucket
+	private final JCacheBucketStore bucketStore;
+
+	// Store selected with rate.limit.engine, or the RateLimitStore bean if any
+	private final RateLimitStore store;
+
+	// Completes deferred admissions once their reserved token may be used
+	private final ScheduledExecutorService admissionScheduler = Executors.newSingleThreadScheduledExecutor(
+			runnable -> Thread.ofPlatform().daemon().name("rate-limit-admission").unstarted(runnable));
+
+	/**
+	 * In-JVM stores only (local / bucket4j engine), e.g. for tests.
+	 */
+	public RateLimitService(RateLimitProperties rateLimitProperties, CacheManager cacheManager, ObjectMapper objectMapper,
+			MeterRegistry meterRegistry) {
+		this(rateLimitProperties, cacheManager, objectMapper, meterRegistry, null);
+	}
+
 	/**
 	 * Constructor initializes the rate limit cache using the provided CacheManager.
 	 *
-	 * @param cacheManager Spring's CacheManager used to retrieve a named cache.
-	 * @param objectMapper Jackson mapper used to read fields from JSON request bodies.
+	 * @param cacheManager  Spring's CacheManager used to retrieve a named cache.
+	 * @param objectMapper  Jackson mapper used to read fields from JSON request bodies.
+	 * @param externalStore RateLimitStore bean replacing the in-JVM stores, e.g.
+	 *                      JdbcRateLimitStore when rate.limit.engine is jdbc
 	 */
-	public RateLimitService(RateLimitProperties rateLimitProperties, CacheManager cacheManager, ObjectMapper objectMapper) {
+	@Autowired
+	public RateLimitService(RateLimitProperties rateLimitProperties, CacheManager cacheManager, ObjectMapper objectMapper,
+			MeterRegistry meterRegistry, ObjectProvider<RateLimitStore> externalStore) {
 		this.rateLimitProperties = rateLimitProperties;
-		this.cache = cacheManager.getCache("buckets", String.class, CustomBucket.class);
+		this.bucketStore = new JCacheBucketStore(cacheManager.getCache("buckets", String.class, CustomBucket.class));
 		this.objectMapper = objectMapper;
+		RateLimitStore external = externalStore != null ? externalStore.getIfAvailable() : null;
+		if (external != null) {
+			this.store = external;
+		} else if ("bucket4j".equalsIgnoreCase(rateLimitProperties.getEngine())) {
+			this.store = bucketStore;
+		} else {
+			RateLimitProperties.Local local = rateLimitProperties.getLocal();
+			LocalTokenBucketStore localStore = new LocalTokenBucketStore(local.getMaxKeys(),
+					TimeUnit.MILLISECONDS.toNanos(local.getIdleEvictMillis()), local.getMaxProbes(), local.isFailOpen());
+			Gauge.builder("rate_limit_local_slots_used", localStore, LocalTokenBucketStore::getUsedSlots)
+					.description("Slots of the local rate limit table claimed by a key")
+					.register(meterRegistry);
+			// Same meter as the JDBC store's fail-open
+			FunctionCounter.builder("rate_limit_store_failures_total", localStore, LocalTokenBucketStore::getRejectedInserts)
+					.description("Requests finding no free slot in the local rate limit table, rejected unless fail-open")
+					.register(meterRegistry);
+			this.store = localStore;
+		}
+	}
+
+	/**
+	 * Consumes a single token of the key's bucket for the API path, with the
+	 * configured store. Buckets are kept per endpoint pattern + key (see
+	 * {@link RateLimitRules.Limit#bucketPath}), so a key calling endpoints with
+	 * different limits gets a bucket for each, and one bucket for all the paths
+	 * of the default limit.
+	 *
+	 * @return false if no token becomes available within max-wait-millis
+	 */
+	public boolean tryConsume(String key, String path) {
+		try {
+			RateLimitRules.Limit limit = rateLimitProperties.getRules().match(path);
+			return store.tryConsume(bucketKey(limit, key), limit.bandwidth(),
+					TimeUnit.MILLISECONDS.toNanos(Math.max(0L, rateLimitProperties.getMaxWaitMillis())));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Non-blocking {@link #tryConsume(String, String)}: the token is reserved now
+	 * and the future completes with true once it may be used, or with false if no
+	 * token becomes available within max-wait-millis. No thread waits meanwhile
+	 * with the local and bucket4j engines.
+	 */
+	public CompletableFuture<Boolean> tryConsumeAsync(String key, String path) {
+		RateLimitRules.Limit limit = rateLimitProperties.getRules().match(path);
+		return store.tryConsumeAsync(bucketKey(limit, key), limit.bandwidth(),
+				TimeUnit.MILLISECONDS.toNanos(Math.max(0L, rateLimitProperties.getMaxWaitMillis())),
+				admissionScheduler);
+	}
+
+	/**
+	 * True if requests waiting for a token should be suspended rather than wait
+	 * on their thread, see {@link #tryConsumeAsync}.
+	 */
+	public boolean isDeferredAdmission() {
+		return rateLimitProperties.isDeferredAdmission() && rateLimitProperties.getMaxWaitMillis() > 0;
+	}
+
+	public long getMaxWaitMillis() {
+		return Math.max(0L, rateLimitProperties.getMaxWaitMillis());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		admissionScheduler.shutdownNow();
+	}
+
+	/**
+	 * Tokens left in the key's bucket for the API path.
+	 */
+	public long getAvailableTokens(String key, String path) {
+		RateLimitRules.Limit limit = rateLimitProperties.getRules().match(path);
+		return store.getAvailableTokens(bucketKey(limit, key), limit.bandwidth());
+	}
+
+	private static String bucketKey(RateLimitRules.Limit limit, String key) {
+		return limit.bucketPath() + "|" + key;
 	}
 
 	/**
 	 * Resolves a rate-limiting bucket for a given client key and API path.
 	 * If the bucket doesn't exist in the cache, it creates and caches a new one
-	 * with limits defined by the path configuration.
+	 * with limits defined by the path configuration, atomically (see
+	 * {@link JCacheBucketStore#resolveBucket}).
 	 *
 	 * @param key  A unique identifier (e.g., IP address or API key) for the caller.
 	 * @param path The API endpoint being accessed, used to determine the limit.
 	 * @return The Bucket associated with the given key.
 	 */
 	public CustomBucket resolveBucket(String key, String path) {
-		CustomBucket bucket = cache.get(key);// Try to fetch the rate limit bucket from the cache
-		if (bucket == null) {
-			Bandwidth bandwidth = rateLimitProperties.getLimitForPath(path);
-			// Build a new token bucket with the defined bandwidth limit
-			bucket = new CustomBucket(bandwidth);
-			// Store the newly created bucket in the cache for future use
-			cache.put(key, bucket);
+		RateLimitRules.Limit limit = rateLimitProperties.getRules().match(path);
+		return bucketStore.resolveBucket(bucketKey(limit, key), limit.bandwidth());
+	}
+
+	/**
+	 * Replaces the default & endpoint rates at runtime and migrates the live
+	 * buckets whose limit changed in place, keeping the tokens they consumed (see
+	 * {@link RateLimitStore#migrate}). Nothing changes if the rates are invalid.
+	 *
+	 * @return number of live buckets migrated
+	 * @throws IllegalArgumentException if a rate or path pattern is invalid
+	 */
+	public synchronized int reload(Logger log, RateLimitProperties.Rate defaultRate,
+			Map<String, RateLimitProperties.Rate> endpoints) throws Throwable {
+		try {
+			RateLimitRules rules = rateLimitProperties.update(defaultRate, endpoints);
+			int migrated = store.migrate(rules::bandwidthOfBucket);
+			if (store != bucketStore) {
+				// Buckets of resolveBucket
+				migrated += bucketStore.migrate(rules::bandwidthOfBucket);
+			}
+			log.info("Rate limit rules v{} applied: default {}, {} endpoint(s), {} live bucket(s) migrated",
+					rules.getVersion(), defaultRate, endpoints.size(), migrated);
+			return migrated;
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds or replaces the rate of one endpoint path pattern, {@code default} for
+	 * the default rate. See {@link #reload}.
+	 */
+	public synchronized int updateEndpoint(Logger log, String path, RateLimitProperties.Rate rate) throws Throwable {
+		Map<String, RateLimitProperties.Rate> endpoints = new LinkedHashMap<>(rateLimitProperties.getEndpoints());
+		RateLimitProperties.Rate defaultRate = rateLimitProperties.getDefaultRate();
+		if ("default".equals(path)) {
+			defaultRate = rate;
+		} else {
+			endpoints.put(path, rate);
+		}
+		return reload(log, defaultRate, endpoints);
+	}
+
+	/**
+	 * Removes the rate of one endpoint path pattern, its paths fall back to the
+	 * default rate. See {@link #reload}.
+	 *
+	 * @return number of live buckets migrated, -1 if the pattern had no rate
+	 */
+	public synchronized int removeEndpoint(Logger log, String path) throws Throwable {
+		Map<String, RateLimitProperties.Rate> endpoints = new LinkedHashMap<>(rateLimitProperties.getEndpoints());
+		if (endpoints.remove(path) == null) {
+			return -1;
 		}
-		return bucket;
+		return reload(log, rateLimitProperties.getDefaultRate(), endpoints);
 	}
 
 	/**
@@ -70,48 +240,51 @@ public class RateLimitService {
 	 * momentary burst. Returns {@code false} if no token becomes available in time.
 	 */
 	public boolean tryConsume(CustomBucket bucket) {
-		long maxWaitMillis = rateLimitProperties.getMaxWaitMillis();
-		if (maxWaitMillis <= 0) {
-			return bucket.tryConsume(1);
-		}
 		try {
-			return bucket.tryConsume(1, java.time.Duration.ofMillis(maxWaitMillis));
+			return bucketStore.tryConsume(bucket,
+					TimeUnit.MILLISECONDS.toNanos(Math.max(0L, rateLimitProperties.getMaxWaitMillis())));
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			return false;
 		}
 	}
 
-	public String resolveKeyFromRequest(Logger log, HttpServletRequest request, String keyType, String keyValues)
-			throws Throwable {
-		String result = "";
+	/**
+	 * Builds the rate limit key of the request from the handler method's
+	 * precompiled plan, written into a single builder. Groups are joined with "|",
+	 * values within a group with ",", values that don't resolve are left out.
+	 *
+	 * @return key such as ip:10.0.0.1|X-Client-Id:abc
+	 */
+	public String resolveKey(Logger log, HttpServletRequest request, RateLimitKeyPlan plan) throws Throwable {
 		try {
-			for (String keyValue : keyValues.split(",")) {
-				String resolvedKey = "";
-				switch (keyType) {
-					case "header":
-						resolvedKey = request.getHeader(keyValue);
-						break;
-					case "pathVariable":
-						resolvedKey = resolvePathVariable(request, keyValue);
-						break;
-					case "requestBody":
-						resolvedKey = resolveRequestBodyField(log, request, keyValue);
-						break;
-					default:
-						resolvedKey = getClientIP(request);
-						break;
-				}
-				if (resolvedKey != null && !resolvedKey.isBlank()) {
-					result += (result.length() > 0 ? "," : "") + keyValue + ":" + resolvedKey;
+			StringBuilder key = new StringBuilder(64);
+			for (List<RateLimitKeyPlan.Part> group : plan.getGroups()) {
+				boolean firstInGroup = true;
+				for (RateLimitKeyPlan.Part part : group) {
+					String value = switch (part.source()) {
+						case HEADER -> request.getHeader(part.name());
+						case PATH_VARIABLE -> resolvePathVariable(request, part.name());
+						case REQUEST_BODY -> resolveRequestBodyField(log, request, part.name(), plan.getBodyFields());
+						default -> getClientIP(request);
+					};
+					if (value == null || value.isBlank()) {
+						continue;
+					}
+					if (!firstInGroup) {
+						key.append(',');
+					} else if (!key.isEmpty()) {
+						key.append('|');
+					}
+					firstInGroup = false;
+					key.append(part.name()).append(':').append(value);
 				}
 			}
+			return key.toString();
 		} catch (Throwable e) {
 			LogUtil.logError(log, e);
 			throw e;
 		}
-		// Prepend the keyType to ensure uniqueness across different key types
-		return result;
 	}
 
 	private String getClientIP(HttpServletRequest request) {
@@ -146,46 +319,29 @@ public class RateLimitService {
 	 * Resolves a single named field used for rate-limit keying.
 	 *
 	 * Looks up the field first as a form/query parameter, then falls back to the
-	 * JSON request body. The body is cached by CachedBodyHttpServletRequest (added
-	 * in CustomOncePerRequestFilter), so re-reading it here does not consume the
-	 * stream the controller later reads. Dot-notated field paths (e.g. "user.id")
-	 * are supported for nested JSON fields.
+	 * JSON request body. All body fields of the key are read at once, see
+	 * {@link #getRequestBodyFields}. Dot-notated field paths (e.g. "user.id") are
+	 * supported for nested JSON fields.
 	 *
-	 * @param request   the incoming HttpServletRequest (possibly wrapped)
-	 * @param fieldPath the path to the field in dot notation (e.g. "user.email")
+	 * @param request    the incoming HttpServletRequest (possibly wrapped)
+	 * @param fieldPath  the path to the field in dot notation (e.g. "user.email")
+	 * @param bodyFields extractor of all body fields of the key
 	 * @return the value of the field as a String, or null if not found or
 	 *         unreadable
 	 */
-	private String resolveRequestBodyField(Logger log, HttpServletRequest request, String fieldPath) throws Throwable {
+	private String resolveRequestBodyField(Logger log, HttpServletRequest request, String fieldPath,
+			JsonFieldExtractor bodyFields) throws Throwable {
 		try {
-			if (fieldPath == null || fieldPath.isBlank()) {
-				return null;
-			}
-			fieldPath = fieldPath.trim();
-
 			// 1) Try form/query parameter first (no body parsing required).
 			String parameterValue = request.getParameter(fieldPath);
 			if (parameterValue != null && !parameterValue.isBlank()) {
 				return StringEscapeUtils.escapeHtml4(parameterValue);
 			}
 
-			// 2) Fall back to the JSON body. The request body is cached by
-			// CachedBodyHttpServletRequest in CustomOncePerRequestFilter, so it can be
-			// re-read here without consuming the stream the controller will read later.
-			String contentType = request.getContentType();
-			if (contentType != null && contentType.toLowerCase().contains("json")) {
-				String body = readBody(request);
-				if (body != null && !body.isBlank()) {
-					JsonNode root = objectMapper.readTree(body);
-					// Support nested fields via dot-path (e.g. "user.id") using a JSON Pointer.
-					JsonNode node = root.at("/" + fieldPath.replace('.', '/'));
-					if (node != null && !node.isMissingNode() && !node.isNull()) {
-						String value = node.isValueNode() ? node.asText() : node.toString();
-						if (value != null && !value.isBlank()) {
-							return StringEscapeUtils.escapeHtml4(value);
-						}
-					}
-				}
+			// 2) Fall back to the JSON body.
+			String value = getRequestBodyFields(request, bodyFields).get(fieldPath);
+			if (value != null && !value.isBlank()) {
+				return StringEscapeUtils.escapeHtml4(value);
 			}
 
 			return null;
@@ -195,18 +351,30 @@ public class RateLimitService {
 		}
 	}
 
-	private String readBody(HttpServletRequest request) throws Throwable {
-		StringBuilder body = new StringBuilder();
-		try (BufferedReader reader = request.getReader()) {
-			if (reader == null) {
-				return null;
-			}
-			char[] buffer = new char[1024];
-			int read;
-			while ((read = reader.read(buffer)) != -1) {
-				body.append(buffer, 0, read);
-			}
+	/**
+	 * Reads the fields of a JSON request body in a single streaming pass, none if
+	 * a field name is duplicated (see {@link JsonFieldExtractor}), and memoizes
+	 * them as request attribute
+	 * {@link #BODY_FIELDS_ATTRIBUTE} for later components. The body is cached by
+	 * CachedBodyHttpServletRequest in CustomOncePerRequestFilter, so reading it
+	 * here does not consume the stream the controller reads later.
+	 *
+	 * @return field path to raw value, for the fields found, empty if the body is
+	 *         not JSON
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, String> getRequestBodyFields(HttpServletRequest request, JsonFieldExtractor bodyFields)
+			throws Throwable {
+		Object memoized = request.getAttribute(BODY_FIELDS_ATTRIBUTE);
+		if (memoized instanceof Map<?, ?> fields) {
+			return (Map<String, String>) fields;
+		}
+		Map<String, String> fields = Map.of();
+		String contentType = request.getContentType();
+		if (contentType != null && contentType.toLowerCase().contains("json")) {
+			fields = Collections.unmodifiableMap(bodyFields.extract(objectMapper, request.getInputStream()));
 		}
-		return body.toString();
+		request.setAttribute(BODY_FIELDS_ATTRIBUTE, fields);
+		return fields;
 	}
 }
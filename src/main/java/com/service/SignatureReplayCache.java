@@ -0,0 +1,285 @@
+package com.service;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers the signatures already accepted within the timestamp window, so
+ * a captured request can't be replayed while its X-TIMESTAMP is still fresh.
+ *
+ * <p>
+ * Entries are 64-bit digests of key ID, timestamp & decoded signature bytes,
+ * kept in a ring of time buckets selected by the request timestamp. The
+ * decoded bytes are what the verifier checks, so Base64 variants of one
+ * signature (padding, unused low bits of the last character) are the same
+ * entry. Each bucket is a fixed size open-addressing set on an
+ * AtomicLongArray, so lookups & inserts are O(1), lock-free and
+ * allocation-free. A bucket is replaced as a whole once its time slot has left
+ * the window, which bounds memory at {@code buckets * capacity * 8} bytes
+ * however many requests arrive.
+ * </p>
+ *
+ * <p>
+ * The capacity is either configured per bucket or sized from the expected peak
+ * of signed requests per second. A full bucket accepts further requests
+ * unrecorded (fail-open, counted & logged once per bucket) rather than
+ * rejecting valid traffic, those requests are still RSA verified. With
+ * {@code fail-closed} they are rejected instead.
+ * </p>
+ */
+@Slf4j
+@Service
+public class SignatureReplayCache {
+
+	private final boolean enabled;
+
+	private final long bucketMs;
+
+	private final int capacity;
+
+	// Inserts accepted per bucket before it counts as full (75% load)
+	private final int maxEntries;
+
+	private final boolean failClosed;
+
+	private final AtomicReferenceArray<Bucket> ring;
+
+	// Per process seed, digests can't be precomputed to collide
+	private final long seed = new SecureRandom().nextLong();
+
+	private final Counter replayCounter;
+
+	private final Counter fullCounter;
+
+	public SignatureReplayCache(@Value("${security.signature.max-clock-skew-ms:300000}") long maxClockSkewMs,
+			@Value("${security.signature.replay-cache.enabled:true}") boolean enabled,
+			@Value("${security.signature.replay-cache.bucket-ms:30000}") long bucketMs,
+			@Value("${security.signature.replay-cache.capacity-per-bucket:16384}") int capacityPerBucket,
+			@Value("${security.signature.replay-cache.max-requests-per-second:0}") int maxRequestsPerSecond,
+			@Value("${security.signature.replay-cache.fail-closed:false}") boolean failClosed,
+			MeterRegistry meterRegistry) {
+		this.enabled = enabled;
+		this.failClosed = failClosed;
+		this.bucketMs = Math.max(1000L, bucketMs);
+		if (maxRequestsPerSecond > 0) {
+			// A bucket takes a full time slot of requests at 75% load
+			long entries = (maxRequestsPerSecond * this.bucketMs + 999) / 1000;
+			capacityPerBucket = (int) Math.min(1 << 30, entries * 4 / 3 + 1);
+		}
+		this.capacity = Integer.highestOneBit(Math.max(15, capacityPerBucket - 1)) << 1;
+		this.maxEntries = capacity / 4 * 3;
+		// Timestamps are accepted from now - skew to now + skew, plus a bucket on
+		// each side for the partially covered slots
+		int buckets = (int) ((2 * maxClockSkewMs + this.bucketMs - 1) / this.bucketMs) + 2;
+		this.ring = new AtomicReferenceArray<>(buckets);
+		this.replayCounter = Counter.builder("signature_replay_rejected_total")
+				.description("Number of requests rejected as replay of an accepted signature")
+				.register(meterRegistry);
+		this.fullCounter = Counter.builder("signature_replay_cache_full_total")
+				.description("Number of verified signatures not recorded because their bucket was full")
+				.register(meterRegistry);
+		log.info("Signature replay cache {}: {} buckets of {} ms, {} entries each, fail-{} when full",
+				enabled ? "enabled" : "disabled", buckets, this.bucketMs, capacity, failClosed ? "closed" : "open");
+	}
+
+	/**
+	 * Lookup done before any RSA work.
+	 *
+	 * @param requestTime validated X-TIMESTAMP in epoch ms
+	 * @param signature   decoded signature bytes, as passed to the verifier
+	 * @return true if this signature was already accepted
+	 */
+	public boolean isReplay(String signingKeyId, long requestTime, byte[] signature) {
+		if (!enabled) {
+			return false;
+		}
+		Bucket bucket = bucket(requestTime, false);
+		if (bucket != null && bucket.contains(digest(signingKeyId, requestTime, signature))) {
+			replayCounter.increment();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records a verified signature. Atomic, so of concurrent requests carrying
+	 * the same signature only one is recorded.
+	 *
+	 * @param requestTime validated X-TIMESTAMP in epoch ms
+	 * @param signature   decoded signature bytes, as passed to the verifier
+	 * @return false if the signature was recorded already (replay)
+	 * @throws IllegalStateException if the bucket is full and the cache fails
+	 *                               closed
+	 */
+	public boolean record(String signingKeyId, long requestTime, byte[] signature) {
+		if (!enabled) {
+			return true;
+		}
+		Bucket bucket = bucket(requestTime, true);
+		if (bucket == null) {
+			return true;
+		}
+		int result = bucket.add(digest(signingKeyId, requestTime, signature));
+		if (result == Bucket.PRESENT) {
+			replayCounter.increment();
+			return false;
+		}
+		if (result == Bucket.FULL) {
+			fullCounter.increment();
+			if (bucket.fullLogged.compareAndSet(false, true)) {
+				log.warn("Signature replay cache bucket of {} full at {} entries, further signatures of its {} ms are {}; "
+						+ "raise security.signature.replay-cache.max-requests-per-second / capacity-per-bucket",
+						Instant.ofEpochMilli(bucket.slot * bucketMs), maxEntries, bucketMs,
+						failClosed ? "rejected" : "accepted without replay protection");
+			}
+			if (failClosed) {
+				throw new IllegalStateException("Signature replay cache full");
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Bucket of the time slot, replaced when its slot in the ring still holds an
+	 * older one. Null if the slot already moved on to a newer time (timestamp
+	 * outside the window) or, for a lookup, nothing was recorded for it yet.
+	 */
+	private Bucket bucket(long requestTime, boolean create) {
+		long slot = Math.floorDiv(requestTime, bucketMs);
+		int index = (int) Math.floorMod(slot, (long) ring.length());
+		while (true) {
+			Bucket bucket = ring.get(index);
+			if (bucket != null && bucket.slot == slot) {
+				return bucket;
+			}
+			if (bucket != null && bucket.slot > slot) {
+				return null;
+			}
+			if (!create) {
+				return null;
+			}
+			Bucket fresh = new Bucket(slot, capacity, maxEntries);
+			if (ring.compareAndSet(index, bucket, fresh)) {
+				return fresh;
+			}
+		}
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	private long digest(String signingKeyId, long requestTime, byte[] signature) {
+		long h = seed ^ requestTime * 0x9E3779B97F4A7C15L;
+		h = mix(h, signingKeyId);
+		h = mix(h, signature);
+		h = fmix(h);
+		// 0 marks an empty slot
+		return h == 0 ? 1 : h;
+	}
+
+	// FNV-1a over the chars
+	private static long mix(long h, String value) {
+		if (value == null) {
+			return h;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return h;
+	}
+
+	// FNV-1a over the bytes
+	private static long mix(long h, byte[] value) {
+		if (value == null) {
+			return h;
+		}
+		for (byte b : value) {
+			h ^= b & 0xFF;
+			h *= 0x100000001B3L;
+		}
+		return h;
+	}
+
+	// Murmur3 finalizer, spreads FNV's low entropy high bits
+	private static long fmix(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Fixed size, insert-only set of non-zero longs with linear probing.
+	 */
+	private static final class Bucket {
+		static final int ADDED = 0;
+		static final int PRESENT = 1;
+		static final int FULL = 2;
+
+		final long slot;
+		final AtomicLongArray table;
+		final int mask;
+		final int maxEntries;
+		final AtomicInteger size = new AtomicInteger();
+		// Full bucket warned about, once per bucket
+		final AtomicBoolean fullLogged = new AtomicBoolean();
+
+		Bucket(long slot, int capacity, int maxEntries) {
+			this.slot = slot;
+			this.table = new AtomicLongArray(capacity);
+			this.mask = capacity - 1;
+			this.maxEntries = maxEntries;
+		}
+
+		boolean contains(long digest) {
+			for (int i = (int) digest & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+				long value = table.get(i);
+				if (value == digest) {
+					return true;
+				}
+				if (value == 0) {
+					return false;
+				}
+			}
+			return false;
+		}
+
+		int add(long digest) {
+			for (int i = (int) digest & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+				long value = table.get(i);
+				if (value == digest) {
+					return PRESENT;
+				}
+				if (value == 0) {
+					if (size.get() >= maxEntries) {
+						return FULL;
+					}
+					if (table.compareAndSet(i, 0, digest)) {
+						size.incrementAndGet();
+						return ADDED;
+					}
+					// Lost the slot, re-check it: the winner may have inserted the same digest
+					if (table.get(i) == digest) {
+						return PRESENT;
+					}
+				}
+			}
+			return FULL;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.service.iso8583;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small pool of fixed size direct ByteBuffers.
+ *
+ * Direct buffers are costly to allocate and are only freed by GC, so the ISO
+ * 8583 channels borrow them here instead of allocating one per message. At most
+ * {@code maxPooled} idle buffers are kept; extra ones are left to GC.
+ */
+public class ByteBufferPool {
+
+	private final int bufferSize;
+
+	private final int maxPooled;
+
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	public ByteBufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Borrows a cleared buffer, allocates a new one if the pool is empty.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		return buffer.clear();
+	}
+
+	/**
+	 * Returns a buffer, must not be used by the caller afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize) {
+			return;
+		}
+		if (pooled.incrementAndGet() <= maxPooled) {
+			buffers.offer(buffer);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
@@ -0,0 +1,349 @@
+package com.service.iso8583;
+import com.utilities.LogUtil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.configuration.Iso8583Properties;
+import com.solab.iso8583.IsoMessage;
+import com.solab.iso8583.IsoType;
+import com.solab.iso8583.MessageFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One persistent TCP connection to the ISO 8583 switch.
+ *
+ * <p>
+ * Messages are framed with a 2 byte big-endian length header, written from the
+ * channel's own direct ByteBuffer (writes are serialized anyway) and decoded
+ * from a pooled one on a blocking {@link SocketChannel}.
+ * Each connection is drained by its own virtual thread, so no platform thread
+ * is parked per connection or per in-flight request. Many requests
+ * share the connection: every request is registered in the in-flight map under
+ * its STAN (field 11) + terminal ID (field 41) and completed by the reader
+ * thread once the matching response arrives, in whatever order the switch
+ * answers.
+ * </p>
+ *
+ * <p>
+ * An 0800 echo (field 70 = 301) is sent when the channel has been idle for
+ * {@code iso8583.echo-interval-ms}; echo requests from the switch are answered
+ * with 0810. A broken connection fails its in-flight requests and is
+ * re-established with exponential backoff.
+ * </p>
+ */
+@Slf4j
+public class Iso8583Channel {
+
+	// Network management information code of an echo test
+	private static final String ECHO_TEST_CODE = "301";
+
+	// Size of the 2 byte length header
+	private static final int HEADER_LENGTH = 2;
+
+	private final String name;
+
+	private final Iso8583Properties iso8583Properties;
+
+	private final MessageFactory<IsoMessage> messageFactory;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ByteBufferPool bufferPool;
+
+	// STAN:TID -> waiting caller
+	private final Map<String, CompletableFuture<IsoMessage>> inFlight = new ConcurrentHashMap<>();
+
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	// Length header + message of the write in progress, guarded by writeLock
+	private final ByteBuffer writeBuffer;
+
+	private volatile SocketChannel socketChannel;
+
+	private volatile boolean connected;
+
+	private volatile boolean closed;
+
+	private volatile long lastActivity;
+
+	private long backoffMs;
+
+	public Iso8583Channel(String name, Iso8583Properties iso8583Properties, MessageFactory<IsoMessage> messageFactory,
+			ScheduledExecutorService scheduler, ByteBufferPool bufferPool) {
+		this.name = name;
+		this.iso8583Properties = iso8583Properties;
+		this.messageFactory = messageFactory;
+		this.scheduler = scheduler;
+		this.bufferPool = bufferPool;
+		this.writeBuffer = bufferPool.acquire();
+		this.backoffMs = iso8583Properties.getReconnectInitialBackoffMs();
+	}
+
+	/**
+	 * Connects and schedules the idle echo check.
+	 */
+	public void start() {
+		connect();
+		long echoIntervalMs = iso8583Properties.getEchoIntervalMs();
+		if (echoIntervalMs > 0) {
+			scheduler.scheduleWithFixedDelay(this::echoIfIdle, echoIntervalMs, echoIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public boolean isConnected() {
+		return connected;
+	}
+
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sends a request and returns a future completed with the correlated response.
+	 * The future fails on timeout, duplicate STAN/TID or connection loss.
+	 *
+	 * @param request ISO message with field 11 (and usually 41) set
+	 * @return Future of the response message
+	 */
+	public CompletableFuture<IsoMessage> send(IsoMessage request) {
+		CompletableFuture<IsoMessage> future = new CompletableFuture<>();
+		if (!connected) {
+			future.completeExceptionally(new IOException("ISO 8583 channel " + name + " is not connected"));
+			return future;
+		}
+		String key = correlationKey(request);
+		if (inFlight.putIfAbsent(key, future) != null) {
+			future.completeExceptionally(new IllegalStateException("Duplicate in-flight STAN/TID " + key));
+			return future;
+		}
+		future.orTimeout(iso8583Properties.getResponseTimeoutMs(), TimeUnit.MILLISECONDS)
+				.whenComplete((response, e) -> inFlight.remove(key, future));
+		try {
+			write(request);
+		} catch (Throwable e) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Writes one frame. A failed socket write tears down the connection it was
+	 * written to, not one reconnected meanwhile.
+	 */
+	private void write(IsoMessage message) throws IOException {
+		byte[] data = message.writeData();
+		if (data.length > writeBuffer.capacity() - HEADER_LENGTH) {
+			throw new IOException("ISO 8583 message of " + data.length + " bytes exceeds the 2 byte length header");
+		}
+		writeLock.lock();
+		try {
+			SocketChannel channel = socketChannel;
+			if (channel == null || closed) {
+				throw new IOException("ISO 8583 channel " + name + " is not connected");
+			}
+			// Length header + message in one buffer, one write call per message
+			writeBuffer.clear();
+			writeBuffer.putShort((short) data.length).put(data).flip();
+			try {
+				while (writeBuffer.hasRemaining()) {
+					channel.write(writeBuffer);
+				}
+			} catch (IOException e) {
+				disconnect(channel, e);
+				throw e;
+			}
+			lastActivity = System.currentTimeMillis();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private synchronized void connect() {
+		if (closed || connected) {
+			return;
+		}
+		SocketChannel newChannel = null;
+		try {
+			newChannel = SocketChannel.open();
+			newChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			newChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+			newChannel.socket().connect(new InetSocketAddress(iso8583Properties.getHost(), iso8583Properties.getPort()),
+					iso8583Properties.getConnectTimeoutMs());
+			socketChannel = newChannel;
+			lastActivity = System.currentTimeMillis();
+			backoffMs = iso8583Properties.getReconnectInitialBackoffMs();
+			connected = true;
+			SocketChannel readChannel = newChannel;
+			Thread.ofVirtual().name(name.concat("-reader")).start(() -> readLoop(readChannel));
+			log.info("ISO 8583 channel {} connected to {}:{}", name, iso8583Properties.getHost(),
+					iso8583Properties.getPort());
+		} catch (Throwable e) {
+			log.warn("ISO 8583 channel {} connect failed: {}", name, e.getMessage());
+			try {
+				if (newChannel != null) {
+					newChannel.close();
+				}
+			} catch (Throwable ignore) {
+			}
+			scheduleReconnect();
+		}
+	}
+
+	private synchronized void scheduleReconnect() {
+		if (closed) {
+			return;
+		}
+		long delay = backoffMs;
+		backoffMs = Math.min(backoffMs * 2, iso8583Properties.getReconnectMaxBackoffMs());
+		log.info("ISO 8583 channel {} reconnecting in {} ms", name, delay);
+		scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reads length prefixed frames until the connection breaks. Bytes are
+	 * accumulated in one pooled direct buffer and every complete frame is decoded
+	 * in place, a partial frame is compacted to the front and completed by the
+	 * next read.
+	 */
+	private void readLoop(SocketChannel readChannel) {
+		Throwable cause = null;
+		ByteBuffer buffer = bufferPool.acquire();
+		try {
+			while (!closed) {
+				if (readChannel.read(buffer) < 0) {
+					throw new EOFException("Connection closed by switch");
+				}
+				buffer.flip();
+				while (buffer.remaining() >= HEADER_LENGTH) {
+					int messageLength = buffer.getShort(buffer.position()) & 0xFFFF; // Read length header (2 bytes)
+					if (buffer.remaining() < HEADER_LENGTH + messageLength) {
+						break;
+					}
+					buffer.position(buffer.position() + HEADER_LENGTH);
+					// j8583 parses from a byte[], the only copy of the frame
+					byte[] frame = new byte[messageLength];
+					buffer.get(frame);
+					lastActivity = System.currentTimeMillis();
+					onFrame(frame);
+				}
+				buffer.compact();
+			}
+		} catch (Throwable e) {
+			cause = e;
+		} finally {
+			bufferPool.release(buffer);
+			disconnect(readChannel, cause);
+		}
+	}
+
+	private void onFrame(byte[] frame) {
+		try {
+			IsoMessage message = messageFactory.parseMessage(frame, 0);
+			if (message.getType() == 0x800) {
+				// Echo / sign-on from the switch, acknowledge it
+				IsoMessage response = messageFactory.createResponse(message);
+				response.setValue(39, "00", IsoType.ALPHA, 2);
+				write(response);
+				return;
+			}
+			CompletableFuture<IsoMessage> future = inFlight.remove(correlationKey(message));
+			if (future != null) {
+				future.complete(message);
+			} else {
+				log.warn("ISO 8583 channel {} got unmatched response {}", name, message.debugString());
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+
+	private void echoIfIdle() {
+		try {
+			if (!connected || System.currentTimeMillis() - lastActivity < iso8583Properties.getEchoIntervalMs()) {
+				return;
+			}
+			IsoMessage echo = messageFactory.newMessage(0x800);
+			echo.setValue(70, ECHO_TEST_CODE, IsoType.NUMERIC, 3);
+			SocketChannel echoChannel = socketChannel;
+			send(echo).whenComplete((response, e) -> {
+				if (e != null) {
+					log.warn("ISO 8583 channel {} echo failed: {}", name, e.toString());
+					disconnect(echoChannel, e);
+				}
+			});
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+	}
+
+	/**
+	 * Tears down the given connection (if still current), fails its in-flight
+	 * requests and schedules a reconnect.
+	 */
+	private synchronized void disconnect(SocketChannel brokenChannel, Throwable cause) {
+		if (brokenChannel == null || brokenChannel != socketChannel) {
+			return;
+		}
+		connected = false;
+		socketChannel = null;
+		try {
+			brokenChannel.close();
+		} catch (Throwable ignore) {
+		}
+		if (!closed) {
+			log.warn("ISO 8583 channel {} disconnected: {}", name, cause != null ? cause.toString() : "closed");
+		}
+		IOException failure = new IOException("ISO 8583 channel " + name + " connection lost", cause);
+		inFlight.values().forEach(future -> future.completeExceptionally(failure));
+		inFlight.clear();
+		scheduleReconnect();
+	}
+
+	public void close() {
+		closed = true;
+		writeLock.lock();
+		try {
+			disconnect(socketChannel, null);
+			bufferPool.release(writeBuffer);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * STAN (field 11) + terminal ID (field 41), leading zeros of the STAN ignored
+	 * since a parsed NUMERIC field may come back as a number.
+	 */
+	static String correlationKey(IsoMessage message) {
+		String stan = fieldValue(message, 11);
+		int i = 0;
+		while (i < stan.length() - 1 && stan.charAt(i) == '0') {
+			i++;
+		}
+		String tid = fieldValue(message, 41);
+		return stan.substring(i).concat(":").concat(tid);
+	}
+
+	private static String fieldValue(IsoMessage message, int field) {
+		// Typed as Object, String.valueOf would otherwise resolve to valueOf(char[])
+		Object value = message.hasField(field) ? message.getObjectValue(field) : null;
+		return value != null ? value.toString().trim() : "";
+	}
+}
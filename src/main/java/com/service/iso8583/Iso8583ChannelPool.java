@@ -0,0 +1,100 @@
+package com.service.iso8583;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+
+import com.configuration.Iso8583Properties;
+import com.solab.iso8583.IsoMessage;
+import com.solab.iso8583.MessageFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of persistent, multiplexed {@link Iso8583Channel}s to the switch.
+ *
+ * Requests are spread round-robin over the connected channels. All channels
+ * parse with the shared factory of {@link Iso8583MessageFactoryService}.
+ */
+@Slf4j
+@Service
+public class Iso8583ChannelPool {
+
+	// 2 byte length header + largest frame it can describe
+	private static final int FRAME_BUFFER_SIZE = 2 + 0xFFFF;
+
+	private final Iso8583Properties iso8583Properties;
+
+	private final MessageFactory<IsoMessage> messageFactory;
+
+	private final List<Iso8583Channel> channels = new ArrayList<>();
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private ByteBufferPool bufferPool;
+
+	private ScheduledExecutorService scheduler;
+
+	public Iso8583ChannelPool(Iso8583Properties iso8583Properties,
+			Iso8583MessageFactoryService iso8583MessageFactoryService) {
+		this.iso8583Properties = iso8583Properties;
+		this.messageFactory = iso8583MessageFactoryService.getMessageFactory();
+	}
+
+	/**
+	 * Opens the channels on startup, skipped while no switch host is configured
+	 */
+	@PostConstruct
+	public void init() {
+		if (iso8583Properties.getHost() == null || iso8583Properties.getHost().isBlank()) {
+			log.info("iso8583.host not set, ISO 8583 channel pool disabled");
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("iso8583-scheduler").factory());
+		int poolSize = Math.max(1, iso8583Properties.getPoolSize());
+		// One write buffer per channel + its read buffer, taken again on reconnect
+		bufferPool = new ByteBufferPool(FRAME_BUFFER_SIZE, poolSize * 2);
+		for (int i = 0; i < poolSize; i++) {
+			Iso8583Channel channel = new Iso8583Channel("iso8583-" + i, iso8583Properties, messageFactory, scheduler,
+					bufferPool);
+			channels.add(channel);
+			channel.start();
+		}
+	}
+
+	/**
+	 * Sends the request over the next connected channel.
+	 *
+	 * @param log     Logger instance
+	 * @param request ISO message with field 11 (and usually 41) set
+	 * @return Future of the correlated response
+	 */
+	public CompletableFuture<IsoMessage> send(Logger log, IsoMessage request) {
+		int size = channels.size();
+		for (int i = 0; i < size; i++) {
+			Iso8583Channel channel = channels.get(Math.floorMod(next.getAndIncrement(), size));
+			if (channel.isConnected()) {
+				log.info("Request via {}: {}", channel.getName(), request.debugString());
+				return channel.send(request);
+			}
+		}
+		return CompletableFuture.failedFuture(new IOException("No connected ISO 8583 channel"));
+	}
+
+	@PreDestroy
+	void shutdown() {
+		channels.forEach(Iso8583Channel::close);
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+}
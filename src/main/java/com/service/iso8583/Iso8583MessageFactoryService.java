@@ -0,0 +1,84 @@
+package com.service.iso8583;
+
+import java.nio.file.Path;
+
+import org.springframework.stereotype.Service;
+
+import com.configuration.Iso8583Properties;
+import com.solab.iso8583.IsoMessage;
+import com.solab.iso8583.MessageFactory;
+import com.solab.iso8583.parse.ConfigParser;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Singleton ISO 8583 message factory.
+ *
+ * <p>
+ * Templates and parse guides are loaded once from {@code iso8583.config-path},
+ * the STAN comes from a {@link PersistentTraceNumberGenerator}, so building a
+ * message costs just filling its fields. The underlying MessageFactory is only
+ * read after startup and is shared by all ISO 8583 channels for parsing.
+ * </p>
+ */
+@Slf4j
+@Service
+public class Iso8583MessageFactoryService {
+
+	// Message type indicators
+	public static final int AUTHORIZATION_REQUEST = 0x100;
+	public static final int FINANCIAL_REQUEST = 0x200;
+	public static final int REVERSAL_REQUEST = 0x400;
+	public static final int NETWORK_MANAGEMENT_REQUEST = 0x800;
+
+	private final MessageFactory<IsoMessage> messageFactory;
+
+	public Iso8583MessageFactoryService(Iso8583Properties iso8583Properties) throws Exception {
+		messageFactory = new MessageFactory<>();
+		ConfigParser.configureFromClasspathConfig(messageFactory, iso8583Properties.getConfigPath());
+		messageFactory.setUseBinaryMessages(true); // Use binary messages for efficiency
+		messageFactory.setAssignDate(true);
+		messageFactory.setTraceNumberGenerator(new PersistentTraceNumberGenerator(
+				Path.of(iso8583Properties.getStanFile()), iso8583Properties.getStanReserveBlock()));
+		log.info("ISO 8583 message factory configured from {}", iso8583Properties.getConfigPath());
+	}
+
+	/**
+	 * 0100 authorization request
+	 */
+	public IsoMessageBuilder authorization() {
+		return builder(AUTHORIZATION_REQUEST);
+	}
+
+	/**
+	 * 0200 financial request
+	 */
+	public IsoMessageBuilder financial() {
+		return builder(FINANCIAL_REQUEST);
+	}
+
+	/**
+	 * 0400 reversal request
+	 */
+	public IsoMessageBuilder reversal() {
+		return builder(REVERSAL_REQUEST);
+	}
+
+	/**
+	 * 0800 network management request, echo test unless networkCode is set
+	 */
+	public IsoMessageBuilder networkManagement() {
+		return builder(NETWORK_MANAGEMENT_REQUEST);
+	}
+
+	private IsoMessageBuilder builder(int type) {
+		return new IsoMessageBuilder(messageFactory.newMessage(type));
+	}
+
+	/**
+	 * Shared, pre-configured factory for parsing & response creation.
+	 */
+	public MessageFactory<IsoMessage> getMessageFactory() {
+		return messageFactory;
+	}
+}
@@ -0,0 +1,70 @@
+package com.service.iso8583;
+
+import com.solab.iso8583.IsoMessage;
+import com.solab.iso8583.IsoType;
+
+/**
+ * Typed builder over a message created from the configured template. Only the
+ * per-transaction fields are filled here; STAN (11) and transmission date (7)
+ * are already assigned by the factory.
+ */
+public class IsoMessageBuilder {
+
+	private final IsoMessage message;
+
+	IsoMessageBuilder(IsoMessage message) {
+		this.message = message;
+	}
+
+	// Processing Code, e.g. 000000 for sale
+	public IsoMessageBuilder processingCode(String processingCode) {
+		message.setValue(3, processingCode, IsoType.NUMERIC, 6);
+		return this;
+	}
+
+	// Transaction Amount in minor units (cents)
+	public IsoMessageBuilder amount(long amount) {
+		message.setValue(4, String.valueOf(amount), IsoType.NUMERIC, 12);
+		return this;
+	}
+
+	// Retrieval Reference Number
+	public IsoMessageBuilder retrievalReference(String rrn) {
+		message.setValue(37, rrn, IsoType.ALPHA, 12);
+		return this;
+	}
+
+	// Card Acceptor Terminal ID
+	public IsoMessageBuilder terminalId(String terminalId) {
+		message.setValue(41, terminalId, IsoType.ALPHA, 8);
+		return this;
+	}
+
+	// Card Acceptor ID
+	public IsoMessageBuilder merchantId(String merchantId) {
+		message.setValue(42, merchantId, IsoType.ALPHA, 15);
+		return this;
+	}
+
+	// Network Management Information Code, e.g. 001 sign-on, 301 echo
+	public IsoMessageBuilder networkCode(String networkCode) {
+		message.setValue(70, networkCode, IsoType.NUMERIC, 3);
+		return this;
+	}
+
+	// Original Data Elements of the transaction being reversed
+	public IsoMessageBuilder originalDataElements(String originalDataElements) {
+		message.setValue(90, originalDataElements, IsoType.NUMERIC, 42);
+		return this;
+	}
+
+	// Any other field
+	public IsoMessageBuilder field(int index, Object value, IsoType type, int length) {
+		message.setValue(index, value, type, length);
+		return this;
+	}
+
+	public IsoMessage build() {
+		return message;
+	}
+}
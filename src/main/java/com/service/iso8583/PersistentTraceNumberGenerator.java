@@ -0,0 +1,103 @@
+package com.service.iso8583;
+import com.utilities.LogUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.solab.iso8583.TraceNumberGenerator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thread-safe, monotonic STAN (field 11) generator that survives restarts.
+ *
+ * <p>
+ * STANs are handed out from an in-memory counter; only the upper bound of the
+ * currently reserved block is written to disk, once per {@code reserveBlock}
+ * numbers. After a restart numbering continues behind the last reserved block,
+ * so a STAN is never reused within the 1-999999 cycle even if the process died
+ * mid block (at the cost of skipping the unused rest of that block).
+ * </p>
+ */
+@Slf4j
+public class PersistentTraceNumberGenerator implements TraceNumberGenerator {
+
+	private static final int MAX_TRACE = 999999;
+
+	private final Path file;
+
+	private final int reserveBlock;
+
+	private final AtomicLong counter;
+
+	private volatile long reservedUntil;
+
+	private volatile int lastTrace;
+
+	public PersistentTraceNumberGenerator(Path file, int reserveBlock) {
+		this.file = file;
+		this.reserveBlock = Math.max(1, reserveBlock);
+		long start = readReserved();
+		this.counter = new AtomicLong(start);
+		this.reservedUntil = start;
+		log.info("STAN generator continues after {} ({})", toTrace(start), file.toAbsolutePath());
+	}
+
+	@Override
+	public int nextTrace() {
+		long value = counter.incrementAndGet();
+		if (value > reservedUntil) {
+			reserve(value);
+		}
+		int trace = toTrace(value);
+		lastTrace = trace;
+		return trace;
+	}
+
+	@Override
+	public int getLastTrace() {
+		return lastTrace;
+	}
+
+	private static int toTrace(long value) {
+		return (int) ((value - 1) % MAX_TRACE) + 1;
+	}
+
+	/**
+	 * Persists a new block before any number of it is used. Threads racing past
+	 * the old bound wait here and return once the block covering them exists.
+	 */
+	private synchronized void reserve(long value) {
+		if (value <= reservedUntil) {
+			return;
+		}
+		long until = value + reserveBlock;
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.writeString(tmp, String.valueOf(until), StandardCharsets.UTF_8);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (Throwable e) {
+			// Keep serving, numbering stays unique for this process
+			LogUtil.logError(log, e);
+		}
+		reservedUntil = until;
+	}
+
+	private long readReserved() {
+		try {
+			if (Files.exists(file)) {
+				return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+		}
+		return 0L;
+	}
+}
@@ -0,0 +1,100 @@
+package com.service.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import javax.cache.Cache;
+
+import com.pojo.bucket4j.CustomBucket;
+
+import io.github.bucket4j.Bandwidth;
+
+/**
+ * A Bucket4j bucket per key in the JCache "buckets" cache
+ * ({@code rate.limit.engine: bucket4j}).
+ */
+public class JCacheBucketStore implements RateLimitStore {
+
+	private final Cache<String, CustomBucket> cache;
+
+	public JCacheBucketStore(Cache<String, CustomBucket> cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Bucket of the key, created with the bandwidth if not cached.
+	 *
+	 * Creation is atomic: of concurrent first requests for a key only one bucket
+	 * is stored (putIfAbsent) and every request consumes from that one, so a
+	 * burst at key creation can't get more than the bucket capacity.
+	 */
+	public CustomBucket resolveBucket(String key, Bandwidth bandwidth) {
+		CustomBucket bucket = cache.get(key);// Try to fetch the rate limit bucket from the cache
+		while (bucket == null) {
+			// Build a new token bucket with the defined bandwidth limit
+			CustomBucket created = new CustomBucket(bandwidth);
+			// Store it unless another request stored one first, then use theirs
+			if (cache.putIfAbsent(key, created)) {
+				return created;
+			}
+			// Null again only if the winner's bucket expired in between
+			bucket = cache.get(key);
+		}
+		return bucket;
+	}
+
+	@Override
+	public boolean tryConsume(String key, Bandwidth bandwidth, long maxWaitNanos) throws InterruptedException {
+		return tryConsume(resolveBucket(key, bandwidth), maxWaitNanos);
+	}
+
+	/**
+	 * Consumes a single token, waiting up to maxWaitNanos for the bucket to
+	 * refill. 0 rejects at once.
+	 */
+	public boolean tryConsume(CustomBucket bucket, long maxWaitNanos) throws InterruptedException {
+		if (maxWaitNanos <= 0) {
+			return bucket.tryConsume(1);
+		}
+		return bucket.tryConsume(1, Duration.ofNanos(maxWaitNanos));
+	}
+
+	/**
+	 * Reserves the token with Bucket4j's scheduling bucket, nothing waits
+	 * meanwhile.
+	 */
+	@Override
+	public CompletableFuture<Boolean> tryConsumeAsync(String key, Bandwidth bandwidth, long maxWaitNanos,
+			ScheduledExecutorService scheduler) {
+		CustomBucket bucket = resolveBucket(key, bandwidth);
+		if (maxWaitNanos <= 0) {
+			return CompletableFuture.completedFuture(bucket.tryConsume(1));
+		}
+		return bucket.tryConsume(1, Duration.ofNanos(maxWaitNanos), scheduler);
+	}
+
+	@Override
+	public long getAvailableTokens(String key, Bandwidth bandwidth) {
+		return resolveBucket(key, bandwidth).getAvailableTokens();
+	}
+
+	/**
+	 * Walks the cached buckets and updates those whose bandwidth changed in place,
+	 * see {@link CustomBucket#updateBandwidth}.
+	 */
+	@Override
+	public int migrate(Function<String, Bandwidth> bandwidthOfKey) {
+		int migrated = 0;
+		for (Cache.Entry<String, CustomBucket> entry : cache) {
+			Bandwidth bandwidth = bandwidthOfKey.apply(entry.getKey());
+			CustomBucket bucket = entry.getValue();
+			if (bandwidth != null && !bandwidth.equals(bucket.getBandwidth())) {
+				bucket.updateBandwidth(bandwidth);
+				migrated++;
+			}
+		}
+		return migrated;
+	}
+}
@@ -0,0 +1,302 @@
+package com.service.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.configuration.RateLimitProperties;
+import com.repo.RateLimitLeaseRepo;
+import com.repo.RateLimitLeaseRepo.LeaseRequest;
+
+import io.github.bucket4j.Bandwidth;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rate limit buckets shared by all nodes through the database
+ * ({@code rate.limit.engine: jdbc}), so the limit holds cluster-wide instead of
+ * once per replica.
+ *
+ * <p>
+ * Requests don't go to the database: each node leases tokens of a key in
+ * chunks of {@code lease-size} and consumes them locally. When a lease runs
+ * low it's topped up in the background, leases running low together are
+ * topped up in one transaction. A node only blocks on the database when its
+ * lease is empty. Leases idle for {@code idle-return-millis} give their unused
+ * tokens back, so the cluster can over-admit a key by at most the tokens
+ * leased out and not yet used.
+ * </p>
+ *
+ * If the database is unavailable requests are let through (fail-open) and
+ * counted in {@code rate_limit_store_failures_total}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "rate.limit.engine", havingValue = "jdbc")
+public class JdbcRateLimitStore implements RateLimitStore {
+
+	private final RateLimitLeaseRepo rateLimitLeaseRepo;
+
+	private final long leaseSize;
+
+	private final long idleReturnNanos;
+
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+	// Leases running low, topped up in one batch by the reconciler thread
+	private final Queue<Lease> refillQueue = new ConcurrentLinkedQueue<>();
+
+	private final ScheduledExecutorService reconciler;
+
+	private final Counter failureCounter;
+
+	public JdbcRateLimitStore(RateLimitLeaseRepo rateLimitLeaseRepo, RateLimitProperties rateLimitProperties,
+			MeterRegistry meterRegistry) {
+		RateLimitProperties.Jdbc jdbc = rateLimitProperties.getJdbc();
+		this.rateLimitLeaseRepo = rateLimitLeaseRepo;
+		this.leaseSize = Math.max(1, jdbc.getLeaseSize());
+		this.idleReturnNanos = TimeUnit.MILLISECONDS.toNanos(jdbc.getIdleReturnMillis());
+		this.reconciler = Executors.newSingleThreadScheduledExecutor(
+				runnable -> Thread.ofPlatform().daemon().name("rate-limit-reconciler").unstarted(runnable));
+		long reconcileMillis = Math.max(100L, jdbc.getReconcileMillis());
+		reconciler.scheduleWithFixedDelay(this::returnIdleLeases, reconcileMillis, reconcileMillis,
+				TimeUnit.MILLISECONDS);
+		long purgeEveryMillis = Math.max(60000L, jdbc.getPurgeIdleMillis() / 4);
+		reconciler.scheduleWithFixedDelay(() -> purge(jdbc.getPurgeIdleMillis()), purgeEveryMillis, purgeEveryMillis,
+				TimeUnit.MILLISECONDS);
+		Gauge.builder("rate_limit_leases", leases, Map::size)
+				.description("Keys this node holds leased rate limit tokens for")
+				.register(meterRegistry);
+		this.failureCounter = Counter.builder("rate_limit_store_failures_total")
+				.description("Requests let through because rate limit tokens couldn't be leased from the database")
+				.register(meterRegistry);
+		log.info("JDBC rate limit store: lease size {}, idle leases returned after {} ms", leaseSize,
+				jdbc.getIdleReturnMillis());
+	}
+
+	@Override
+	public boolean tryConsume(String key, Bandwidth bandwidth, long maxWaitNanos) throws InterruptedException {
+		long deadline = System.nanoTime() + maxWaitNanos;
+		while (true) {
+			Lease lease = leases.computeIfAbsent(key, k -> new Lease(LocalTokenBucketStore.hash(k), bandwidth,
+					Math.min(leaseSize, bandwidth.getCapacity())));
+			lease.lastUsed = System.nanoTime();
+			if (lease.take()) {
+				if (lease.tokens.get() < (lease.chunk + 1) / 2) {
+					requestRefill(lease);
+				}
+				return true;
+			}
+			long now = System.nanoTime();
+			long retryAt = lease.emptyUntil;
+			if (now - retryAt < 0) {
+				// Bucket empty cluster-wide, no database call until a token is refilled
+				if (retryAt - deadline > 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.sleep(retryAt - now);
+				continue;
+			}
+			// Nothing leased locally, lease a chunk now
+			try {
+				leaseNow(lease);
+			} catch (Throwable e) {
+				failureCounter.increment();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Tokens this node has leased for the key, capacity if none leased yet.
+	 */
+	@Override
+	public long getAvailableTokens(String key, Bandwidth bandwidth) {
+		Lease lease = leases.get(key);
+		return lease != null ? lease.tokens.get() : bandwidth.getCapacity();
+	}
+
+	/**
+	 * Gives the tokens of leases whose bandwidth changed back to the database, the
+	 * next request leases again with the new bandwidth. Buckets in the database
+	 * keep their tokens, capped at the new capacity on the next lease.
+	 */
+	@Override
+	public int migrate(Function<String, Bandwidth> bandwidthOfKey) {
+		Map<Long, long[]> returns = new HashMap<>();
+		int[] migrated = { 0 };
+		leases.forEach((key, lease) -> {
+			Bandwidth bandwidth = bandwidthOfKey.apply(key);
+			if (bandwidth != null && !bandwidth.equals(lease.bandwidth) && leases.remove(key, lease)) {
+				migrated[0]++;
+				long left = lease.tokens.getAndSet(0);
+				if (left > 0) {
+					returns.put(lease.keyHash, new long[] { left, bandwidth.getCapacity() });
+				}
+			}
+		});
+		giveBack(returns);
+		return migrated[0];
+	}
+
+	/**
+	 * Leases a chunk for an empty lease, one database call per lease at a time.
+	 * If the bucket is empty, marks the lease empty for one refill interval.
+	 */
+	private void leaseNow(Lease lease) throws Throwable {
+		lease.lock.lock();
+		try {
+			if (lease.tokens.get() > 0 || System.nanoTime() - lease.emptyUntil < 0) {
+				// Filled or found empty while waiting for the lock
+				return;
+			}
+			long granted = rateLimitLeaseRepo.lease(log, List.of(lease.request())).getOrDefault(lease.keyHash, 0L);
+			if (granted > 0) {
+				lease.tokens.addAndGet(granted);
+			} else {
+				lease.emptyUntil = System.nanoTime() + lease.interval;
+			}
+		} finally {
+			lease.lock.unlock();
+		}
+	}
+
+	private void requestRefill(Lease lease) {
+		if (lease.refilling.compareAndSet(false, true)) {
+			refillQueue.add(lease);
+			reconciler.execute(this::refillQueued);
+		}
+	}
+
+	/**
+	 * Tops up all leases queued for refill in one transaction.
+	 */
+	private void refillQueued() {
+		Map<Long, Lease> batch = new HashMap<>();
+		for (Lease lease = refillQueue.poll(); lease != null; lease = refillQueue.poll()) {
+			batch.put(lease.keyHash, lease);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			List<LeaseRequest> requests = new ArrayList<>(batch.size());
+			batch.values().forEach(lease -> requests.add(lease.request()));
+			rateLimitLeaseRepo.lease(log, requests)
+					.forEach((keyHash, granted) -> batch.get(keyHash).tokens.addAndGet(granted));
+		} catch (Throwable e) {
+			// Logged by the repo, the next request running low retries
+		} finally {
+			batch.values().forEach(lease -> lease.refilling.set(false));
+		}
+	}
+
+	/**
+	 * Gives the tokens of leases idle for idle-return-millis back to the database.
+	 */
+	private void returnIdleLeases() {
+		long now = System.nanoTime();
+		Map<Long, long[]> returns = new HashMap<>();
+		leases.forEach((key, lease) -> {
+			if (now - lease.lastUsed > idleReturnNanos && leases.remove(key, lease)) {
+				long left = lease.tokens.getAndSet(0);
+				if (left > 0) {
+					returns.put(lease.keyHash, new long[] { left, lease.bandwidth.getCapacity() });
+				}
+			}
+		});
+		giveBack(returns);
+	}
+
+	private void giveBack(Map<Long, long[]> returns) {
+		try {
+			rateLimitLeaseRepo.giveBack(log, returns);
+		} catch (Throwable e) {
+			// Logged by the repo, the tokens come back with the next refill
+		}
+	}
+
+	private void purge(long idleMillis) {
+		try {
+			int purged = rateLimitLeaseRepo.purge(log, idleMillis);
+			if (purged > 0) {
+				log.info("Purged {} idle rate limit bucket(s)", purged);
+			}
+		} catch (Throwable e) {
+			// Logged by the repo, retried next run
+		}
+	}
+
+	/**
+	 * Returns all leased tokens on shutdown, so they aren't lost for the other
+	 * nodes until refilled.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		reconciler.shutdownNow();
+		Map<Long, long[]> returns = new HashMap<>();
+		leases.forEach((key, lease) -> {
+			long left = lease.tokens.getAndSet(0);
+			if (left > 0) {
+				returns.put(lease.keyHash, new long[] { left, lease.bandwidth.getCapacity() });
+			}
+		});
+		leases.clear();
+		giveBack(returns);
+	}
+
+	/**
+	 * Tokens of one key leased to this node.
+	 */
+	private static final class Lease {
+		private final long keyHash;
+		private final Bandwidth bandwidth;
+		private final long chunk;
+		private final AtomicLong tokens = new AtomicLong();
+		private final AtomicBoolean refilling = new AtomicBoolean();
+		private final ReentrantLock lock = new ReentrantLock();
+		// Time for one token to refill
+		private final long interval;
+		private volatile long lastUsed;
+		// nanoTime until which the bucket is known empty
+		private volatile long emptyUntil = System.nanoTime();
+
+		private Lease(long keyHash, Bandwidth bandwidth, long chunk) {
+			this.keyHash = keyHash;
+			this.bandwidth = bandwidth;
+			this.chunk = Math.max(1, chunk);
+			this.interval = Math.max(1L, bandwidth.getRefillPeriodNanos() / Math.max(1L, bandwidth.getRefillTokens()));
+		}
+
+		private boolean take() {
+			for (long left = tokens.get(); left > 0; left = tokens.get()) {
+				if (tokens.compareAndSet(left, left - 1)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private LeaseRequest request() {
+			return new LeaseRequest(keyHash, bandwidth.getCapacity(), bandwidth.getRefillTokens(),
+					Math.max(1L, TimeUnit.NANOSECONDS.toMillis(bandwidth.getRefillPeriodNanos())), chunk);
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package com.service.ratelimit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.bucket4j.Bandwidth;
+
+/**
+ * In-process token buckets for millions of keys without an object per key.
+ *
+ * <p>
+ * Each bucket is reduced to one long, its theoretical arrival time (GCRA): a
+ * bucket of capacity C refilling one token every T nanos allows a request if
+ * {@code max(tat, now) + T - now <= C * T} and then stores that value as the
+ * new tat. This is equivalent to tokens + last refill time, but fits a single
+ * CAS. Buckets live in an open-addressing table of longs, {@code [key hash,
+ * tat]} pairs, updated through VarHandles without locks.
+ * </p>
+ *
+ * <p>
+ * A bucket not used for {@code idleEvictNanos} is full again and its slot is
+ * reused by the next key probing past it, so idle keys are evicted without a
+ * sweeper. The reclaiming thread locks the slot by swapping its tat for
+ * {@code RECLAIMING}, then hands the slot to the new key with a zero tat. A
+ * request re-checks the slot's key after reading the tat, and a tat only grows
+ * while the slot has one owner, so a request that located the old key can't
+ * consume from the new key's bucket. When no slot is free within
+ * {@code maxProbes} the request is rejected, or let through with
+ * {@code failOpen}, and counted in {@link #getRejectedInserts()},
+ * {@code rate_limit_store_failures_total}. Rejecting is the default: keys are
+ * partly client chosen (e.g. X-Forwarded-For), a caller spraying keys to fill
+ * its probe chains must not pass unlimited.
+ * </p>
+ *
+ * <p>
+ * The bandwidth comes with every request, so changed limits apply at once
+ * without migrating anything. A bucket keeps its tat, i.e. the time until it
+ * is full again, and is capped at the new capacity.
+ * </p>
+ */
+public class LocalTokenBucketStore implements RateLimitStore {
+
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// [key hash, tat] pairs, a key hash of 0 marks an empty slot
+	private final long[] table;
+
+	private final int mask;
+
+	private final int maxProbes;
+
+	private final long idleEvictNanos;
+
+	// Let requests through when no slot is free, instead of rejecting them
+	private final boolean failOpen;
+
+	// Keeps tat positive, 0 means never used
+	private final long origin = System.nanoTime() - 1;
+
+	// Tat of a slot being handed to another key
+	private static final long RECLAIMING = -1L;
+
+	// Result of a reserve attempt that has to look up the slot again
+	static final long RETRY = Long.MIN_VALUE;
+
+	private final LongAdder usedSlots = new LongAdder();
+
+	private final LongAdder rejectedInserts = new LongAdder();
+
+	/**
+	 * @param maxKeys        number of buckets held, rounded up to a power of two
+	 *                       (16 bytes each)
+	 * @param idleEvictNanos idle time after which a bucket's slot may be reused
+	 * @param maxProbes      max slots looked at per key
+	 * @param failOpen       let a request through when no slot is free within
+	 *                       maxProbes, rejected otherwise
+	 */
+	public LocalTokenBucketStore(int maxKeys, long idleEvictNanos, int maxProbes, boolean failOpen) {
+		int slots = Integer.highestOneBit(Math.max(15, maxKeys - 1)) << 1;
+		this.table = new long[slots * 2];
+		this.mask = slots - 1;
+		this.maxProbes = Math.max(1, Math.min(maxProbes, slots));
+		this.idleEvictNanos = idleEvictNanos;
+		this.failOpen = failOpen;
+	}
+
+	/**
+	 * Takes one token from the key's bucket, waiting up to maxWaitNanos for it to
+	 * refill. A token that becomes available within that time is reserved before
+	 * sleeping, like Bucket4j's blocking tryConsume.
+	 *
+	 * @return false if no token is available in time
+	 */
+	@Override
+	public boolean tryConsume(String key, Bandwidth bandwidth, long maxWaitNanos) throws InterruptedException {
+		long wait = reserve(key, bandwidth, maxWaitNanos);
+		if (wait < 0) {
+			return false;
+		}
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+		return true;
+	}
+
+	/**
+	 * Reserves the token ahead and completes on the scheduler once it may be used,
+	 * nothing waits meanwhile.
+	 */
+	@Override
+	public CompletableFuture<Boolean> tryConsumeAsync(String key, Bandwidth bandwidth, long maxWaitNanos,
+			ScheduledExecutorService scheduler) {
+		long wait = reserve(key, bandwidth, maxWaitNanos);
+		if (wait <= 0) {
+			return CompletableFuture.completedFuture(wait == 0);
+		}
+		CompletableFuture<Boolean> admission = new CompletableFuture<>();
+		scheduler.schedule(() -> admission.complete(Boolean.TRUE), wait, TimeUnit.NANOSECONDS);
+		return admission;
+	}
+
+	/**
+	 * Reserves one token of the key's bucket that is available within
+	 * maxWaitNanos.
+	 *
+	 * @return nanos until the reserved token may be used, 0 if now, -1 if no token
+	 *         is available in time (nothing reserved) or the key has no slot and
+	 *         the store doesn't fail open
+	 */
+	public long reserve(String key, Bandwidth bandwidth, long maxWaitNanos) {
+		long interval = emissionInterval(bandwidth);
+		long burst = bandwidth.getCapacity() * interval;
+		long hash = hash(key);
+		while (true) {
+			long now = now();
+			int slot = slot(hash, now);
+			if (slot < 0) {
+				rejectedInserts.increment();
+				return failOpen ? 0 : -1;
+			}
+			long wait = reserve(slot, hash, now, interval, burst, maxWaitNanos);
+			if (wait != RETRY) {
+				return wait;
+			}
+		}
+	}
+
+	/**
+	 * One attempt at reserving a token in the slot located for the key.
+	 *
+	 * @return as {@link #reserve(String, Bandwidth, long)}, {@code RETRY} if the
+	 *         slot was reclaimed by another key since it was located, or another
+	 *         request of the key won the CAS
+	 */
+	long reserve(int slot, long hash, long now, long interval, long burst, long maxWaitNanos) {
+		int index = slot * 2 + 1;
+		long tat = (long) SLOTS.getVolatile(table, index);
+		// Key re-checked after the tat was read, a reclaim resets the tat after
+		// swapping the key
+		if (tat == RECLAIMING || (long) SLOTS.getVolatile(table, slot * 2) != hash) {
+			Thread.onSpinWait();
+			return RETRY;
+		}
+		long newTat = Math.max(tat, now) + interval;
+		long wait = newTat - now - burst;
+		if (wait > 0 && wait > maxWaitNanos) {
+			return -1;
+		}
+		// Fails on a concurrent request or a reclaim, the tat never returns to an
+		// earlier value
+		return SLOTS.compareAndSet(table, index, tat, newTat) ? Math.max(0, wait) : RETRY;
+	}
+
+	/**
+	 * Tokens currently left in the key's bucket, capacity if unknown.
+	 */
+	@Override
+	public long getAvailableTokens(String key, Bandwidth bandwidth) {
+		long interval = emissionInterval(bandwidth);
+		long now = now();
+		long hash = hash(key);
+		for (int probe = 0, i = (int) hash & mask; probe < maxProbes; probe++, i = (i + 1) & mask) {
+			long slotKey = (long) SLOTS.getVolatile(table, i * 2);
+			if (slotKey == hash) {
+				long tat = (long) SLOTS.getVolatile(table, i * 2 + 1);
+				long tokens = (now + bandwidth.getCapacity() * interval - Math.max(tat, now)) / interval;
+				return Math.max(0, Math.min(bandwidth.getCapacity(), tokens));
+			}
+			if (slotKey == 0) {
+				break;
+			}
+		}
+		return bandwidth.getCapacity();
+	}
+
+	/**
+	 * Slot of the key, claiming an empty or idle one if the key is new.
+	 *
+	 * @return slot index, -1 if no slot is free within maxProbes
+	 */
+	int slot(long hash, long now) {
+		retry: while (true) {
+			int idle = -1;
+			long idleTat = 0;
+			int i = (int) hash & mask;
+			for (int probe = 0; probe < maxProbes; probe++, i = (i + 1) & mask) {
+				// Tat first: a reset tat of a reclaimed slot is read with its new key
+				long tat = (long) SLOTS.getVolatile(table, i * 2 + 1);
+				long slotKey = (long) SLOTS.getVolatile(table, i * 2);
+				if (slotKey == hash) {
+					return i;
+				}
+				if (tat == RECLAIMING) {
+					// Changing hands, it may become this key's slot
+					Thread.onSpinWait();
+					continue retry;
+				}
+				if (slotKey == 0) {
+					// Key isn't further down the chain, prefer reusing an idle slot
+					if (idle >= 0) {
+						break;
+					}
+					if (SLOTS.compareAndSet(table, i * 2, 0L, hash)) {
+						usedSlots.increment();
+						return i;
+					}
+					continue retry;
+				}
+				// tat 0: just claimed, not used yet
+				if (idle < 0 && tat != 0 && tat + idleEvictNanos < now) {
+					idle = i;
+					idleTat = tat;
+				}
+			}
+			if (idle < 0) {
+				return -1;
+			}
+			// Fails if the idle key was used meanwhile
+			if (SLOTS.compareAndSet(table, idle * 2 + 1, idleTat, RECLAIMING)) {
+				SLOTS.setVolatile(table, idle * 2, hash);
+				// A fresh tat reads as a full bucket
+				SLOTS.setVolatile(table, idle * 2 + 1, 0L);
+				return idle;
+			}
+		}
+	}
+
+	/**
+	 * Key hash held by the slot, 0 if empty
+	 */
+	long slotKey(int slot) {
+		return (long) SLOTS.getVolatile(table, slot * 2);
+	}
+
+	long now() {
+		return System.nanoTime() - origin;
+	}
+
+	private static long emissionInterval(Bandwidth bandwidth) {
+		return Math.max(1L, bandwidth.getRefillPeriodNanos() / Math.max(1L, bandwidth.getRefillTokens()));
+	}
+
+	/**
+	 * 64-bit hash of the key, FNV-1a with a Murmur3 finalizer, never 0
+	 */
+	static long hash(String key) {
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h == 0 ? 1 : h;
+	}
+
+	/**
+	 * Slots ever claimed from empty, reused idle slots are not counted again
+	 */
+	public long getUsedSlots() {
+		return usedSlots.sum();
+	}
+
+	/**
+	 * Requests rejected, or let through with failOpen, because no slot was free
+	 */
+	public long getRejectedInserts() {
+		return rejectedInserts.sum();
+	}
+
+	public int getMaxKeys() {
+		return mask + 1;
+	}
+}
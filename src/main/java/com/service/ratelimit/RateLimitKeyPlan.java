@@ -0,0 +1,106 @@
+package com.service.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.utilities.JsonFieldExtractor;
+import com.validation.RateLimit;
+
+/**
+ * Rate limit key extraction compiled once from a handler method's
+ * {@link RateLimit}, so requests don't re-read the annotation or split its
+ * comma lists.
+ *
+ * <p>
+ * The key is made of groups (client IP, headers, path variables, request body
+ * fields) joined with "|", each group a comma-separated list of
+ * {@code name:value} for the names that resolved to a non-blank value, e.g.
+ * {@code ip:10.0.0.1|X-Client-Id:abc}.
+ * </p>
+ *
+ * Instances are immutable and shared by all requests of the handler method.
+ */
+public final class RateLimitKeyPlan {
+
+	/**
+	 * Plan of a handler method without {@link RateLimit}, not rate limited.
+	 */
+	public static final RateLimitKeyPlan NONE = new RateLimitKeyPlan(List.of(), null);
+
+	public enum Source {
+		IP, HEADER, PATH_VARIABLE, REQUEST_BODY
+	}
+
+	/**
+	 * One value of the key, e.g. header X-Client-Id
+	 */
+	public record Part(Source source, String name) {
+	}
+
+	private final List<List<Part>> groups;
+
+	// All request body fields of the key, read in one pass. Null if none
+	private final JsonFieldExtractor bodyFields;
+
+	private RateLimitKeyPlan(List<List<Part>> groups, JsonFieldExtractor bodyFields) {
+		this.groups = groups;
+		this.bodyFields = bodyFields;
+	}
+
+	/**
+	 * @param rateLimit annotation of the handler method, may be null
+	 */
+	public static RateLimitKeyPlan compile(RateLimit rateLimit) {
+		if (rateLimit == null) {
+			return NONE;
+		}
+		List<List<Part>> groups = new ArrayList<>(4);
+		groups.add(List.of(new Part(Source.IP, "ip")));
+		addGroup(groups, Source.HEADER, rateLimit.headerName());
+		addGroup(groups, Source.PATH_VARIABLE, rateLimit.pathVariable());
+		addGroup(groups, Source.REQUEST_BODY, rateLimit.requestBodyField());
+		List<String> bodyFieldNames = groups.stream()
+				.flatMap(List::stream)
+				.filter(part -> part.source() == Source.REQUEST_BODY)
+				.map(Part::name)
+				.toList();
+		return new RateLimitKeyPlan(List.copyOf(groups),
+				bodyFieldNames.isEmpty() ? null : JsonFieldExtractor.compile(bodyFieldNames));
+	}
+
+	private static void addGroup(List<List<Part>> groups, Source source, String names) {
+		if (names == null || names.isBlank()) {
+			return;
+		}
+		List<Part> parts = new ArrayList<>();
+		for (String name : names.split(",")) {
+			if (!name.isBlank()) {
+				parts.add(new Part(source, name.trim()));
+			}
+		}
+		if (!parts.isEmpty()) {
+			groups.add(List.copyOf(parts));
+		}
+	}
+
+	/**
+	 * False for handler methods without {@link RateLimit}
+	 */
+	public boolean isLimited() {
+		return !groups.isEmpty();
+	}
+
+	/**
+	 * Key groups in order, each a non-empty list of parts of one source
+	 */
+	public List<List<Part>> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * Extractor of all request body fields of the key, null if none
+	 */
+	public JsonFieldExtractor getBodyFields() {
+		return bodyFields;
+	}
+}
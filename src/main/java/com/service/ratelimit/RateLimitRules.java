@@ -0,0 +1,228 @@
+package com.service.ratelimit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.bucket4j.Bandwidth;
+
+/**
+ * Rate limits of the API paths compiled from {@code rate.limit}: the default
+ * limit and the endpoint limits in a trie of path segments, so a request path
+ * is matched in one walk over its segments.
+ *
+ * <p>
+ * Endpoint keys are path patterns. A literal segment matches itself, a segment
+ * with a {@code {variable}} or {@code *} matches any one segment and a last
+ * segment {@code **} matches all remaining ones (or none). Literal segments
+ * win over variables, variables over {@code **}. E.g.
+ * {@code /spring/v1/template/put/{id}/{ic}} is the limit of every
+ * {@code /spring/v1/template/put/x/y}. Empty segments are ignored, a trailing
+ * slash makes no difference.
+ * </p>
+ *
+ * Instances are immutable, a reload compiles new rules and swaps them in as a
+ * whole.
+ */
+public final class RateLimitRules {
+
+	/**
+	 * Limit of the paths matching the pattern, null pattern for the default limit
+	 */
+	public record Limit(String pattern, Bandwidth bandwidth) {
+
+		/**
+		 * Path the request's buckets are kept under: the pattern, so all paths
+		 * matching it share the limit, or {@link #DEFAULT_BUCKET_PATH} for the
+		 * default limit, so a key has one default bucket whatever path it calls.
+		 * Never the request path, every path variable value would get a full
+		 * bucket. Bucket keys are {@code bucketPath|client key}.
+		 */
+		public String bucketPath() {
+			return pattern != null ? pattern : DEFAULT_BUCKET_PATH;
+		}
+	}
+
+	/**
+	 * Bucket path of the default limit, can't be used as endpoint pattern
+	 */
+	public static final String DEFAULT_BUCKET_PATH = "*";
+
+	private final long version;
+
+	private final Limit defaultLimit;
+
+	// Pattern -> limit, in configuration order
+	private final Map<String, Limit> limits;
+
+	private final Node root = new Node();
+
+	private static final class Node {
+		private final Map<String, Node> literals = new HashMap<>();
+		// {variable} or * segment
+		private Node variable;
+		// Limit of a pattern ending here
+		private Limit limit;
+		// Limit of a pattern ending here with **
+		private Limit remaining;
+	}
+
+	private RateLimitRules(long version, Bandwidth defaultBandwidth, Map<String, Bandwidth> endpoints) {
+		this.version = version;
+		this.defaultLimit = new Limit(null, defaultBandwidth);
+		Map<String, Limit> compiled = new LinkedHashMap<>();
+		endpoints.forEach((pattern, bandwidth) -> {
+			Limit limit = new Limit(pattern, bandwidth);
+			add(pattern, limit);
+			compiled.put(pattern, limit);
+		});
+		this.limits = Collections.unmodifiableMap(compiled);
+	}
+
+	/**
+	 * @param version          increases with every reload
+	 * @param defaultBandwidth limit of the paths no pattern matches
+	 * @param endpoints        path pattern -> limit
+	 * @throws IllegalArgumentException if a pattern is blank, is
+	 *                                  {@link #DEFAULT_BUCKET_PATH} or has **
+	 *                                  before its last segment
+	 */
+	public static RateLimitRules compile(long version, Bandwidth defaultBandwidth, Map<String, Bandwidth> endpoints) {
+		if (defaultBandwidth == null) {
+			throw new IllegalArgumentException("Default rate limit is required");
+		}
+		return new RateLimitRules(version, defaultBandwidth, endpoints);
+	}
+
+	private void add(String pattern, Limit limit) {
+		if (pattern == null || pattern.isBlank()) {
+			throw new IllegalArgumentException("Blank rate limit path pattern");
+		}
+		if (DEFAULT_BUCKET_PATH.equals(pattern)) {
+			throw new IllegalArgumentException("Rate limit path pattern " + pattern + " is reserved for the default rate");
+		}
+		Node node = root;
+		int start = skipSlashes(pattern, 0);
+		while (start < pattern.length()) {
+			int end = segmentEnd(pattern, start);
+			String segment = pattern.substring(start, end);
+			start = skipSlashes(pattern, end);
+			if ("**".equals(segment)) {
+				if (start < pattern.length()) {
+					throw new IllegalArgumentException("** must be the last segment of rate limit path " + pattern);
+				}
+				node.remaining = limit;
+				return;
+			}
+			if (segment.indexOf('{') >= 0 || segment.indexOf('*') >= 0) {
+				if (node.variable == null) {
+					node.variable = new Node();
+				}
+				node = node.variable;
+			} else {
+				node = node.literals.computeIfAbsent(segment, s -> new Node());
+			}
+		}
+		node.limit = limit;
+	}
+
+	/**
+	 * Limit of the request path, the default limit if no pattern matches.
+	 */
+	public Limit match(String path) {
+		Limit limit = path != null ? match(root, path, 0) : null;
+		return limit != null ? limit : defaultLimit;
+	}
+
+	private static Limit match(Node node, String path, int from) {
+		int start = skipSlashes(path, from);
+		if (start == path.length()) {
+			return node.limit != null ? node.limit : node.remaining;
+		}
+		int end = segmentEnd(path, start);
+		if (!node.literals.isEmpty()) {
+			Node literal = node.literals.get(path.substring(start, end));
+			Limit limit = literal != null ? match(literal, path, end) : null;
+			if (limit != null) {
+				return limit;
+			}
+		}
+		if (node.variable != null) {
+			Limit limit = match(node.variable, path, end);
+			if (limit != null) {
+				return limit;
+			}
+		}
+		return node.remaining;
+	}
+
+	/**
+	 * Bandwidth of a live bucket under these rules, from its key
+	 * ({@code bucketPath|client key}, see {@link Limit#bucketPath}).
+	 */
+	public Bandwidth bandwidthOfBucket(String bucketKey) {
+		int end = bucketKey.indexOf('|');
+		String path = end < 0 ? bucketKey : bucketKey.substring(0, end);
+		if (DEFAULT_BUCKET_PATH.equals(path)) {
+			return defaultLimit.bandwidth();
+		}
+		Limit limit = limits.get(path);
+		return (limit != null ? limit : match(path)).bandwidth();
+	}
+
+	/**
+	 * Endpoint patterns none of the paths matches, e.g. the handler mapping
+	 * patterns: a pattern of no registered endpoint is most likely a typo and its
+	 * requests silently get the default limit. A {@code {variable}} segment of a
+	 * path is matched like any other value.
+	 */
+	public List<String> unmatchedPatterns(Collection<String> paths) {
+		Set<String> matched = new HashSet<>();
+		for (String path : paths) {
+			Limit limit = match(path);
+			if (limit.pattern() != null) {
+				matched.add(limit.pattern());
+			}
+		}
+		List<String> unmatched = new ArrayList<>();
+		for (String pattern : limits.keySet()) {
+			if (!matched.contains(pattern)) {
+				unmatched.add(pattern);
+			}
+		}
+		return unmatched;
+	}
+
+	private static int skipSlashes(String path, int from) {
+		while (from < path.length() && path.charAt(from) == '/') {
+			from++;
+		}
+		return from;
+	}
+
+	private static int segmentEnd(String path, int start) {
+		int end = path.indexOf('/', start);
+		return end < 0 ? path.length() : end;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Limit getDefaultLimit() {
+		return defaultLimit;
+	}
+
+	/**
+	 * Endpoint limits, pattern -> limit
+	 */
+	public Map<String, Limit> getLimits() {
+		return limits;
+	}
+}
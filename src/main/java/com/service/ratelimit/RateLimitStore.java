@@ -0,0 +1,76 @@
+package com.service.ratelimit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import io.github.bucket4j.Bandwidth;
+
+/**
+ * Storage of rate limit buckets behind RateLimitService, one bucket per key.
+ *
+ * <p>
+ * Built-in stores are chosen with {@code rate.limit.engine}: {@code local}
+ * ({@link LocalTokenBucketStore}) and {@code bucket4j}
+ * ({@link JCacheBucketStore}) keep buckets in this JVM, {@code jdbc}
+ * ({@link JdbcRateLimitStore}) shares them across nodes. A RateLimitStore bean
+ * replaces the built-in stores.
+ * </p>
+ */
+public interface RateLimitStore {
+
+	/**
+	 * Takes one token from the key's bucket, created with the bandwidth if new,
+	 * waiting up to maxWaitNanos for it to refill.
+	 *
+	 * @return false if no token is available in time
+	 */
+	boolean tryConsume(String key, Bandwidth bandwidth, long maxWaitNanos) throws InterruptedException;
+
+	/**
+	 * Non-blocking {@link #tryConsume}: completes with true once the token may be
+	 * used, false if none is available within maxWaitNanos. Stores reserving
+	 * ahead complete on the scheduler without any thread waiting, others wait on
+	 * a virtual thread.
+	 */
+	default CompletableFuture<Boolean> tryConsumeAsync(String key, Bandwidth bandwidth, long maxWaitNanos,
+			ScheduledExecutorService scheduler) {
+		try {
+			if (tryConsume(key, bandwidth, 0)) {
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return CompletableFuture.completedFuture(Boolean.FALSE);
+		}
+		if (maxWaitNanos <= 0) {
+			return CompletableFuture.completedFuture(Boolean.FALSE);
+		}
+		CompletableFuture<Boolean> admission = new CompletableFuture<>();
+		Thread.ofVirtual().name("rate-limit-wait").start(() -> {
+			try {
+				admission.complete(tryConsume(key, bandwidth, maxWaitNanos));
+			} catch (Throwable e) {
+				admission.complete(Boolean.FALSE);
+			}
+		});
+		return admission;
+	}
+
+	/**
+	 * Tokens left in the key's bucket, may be approximate. For logging.
+	 */
+	long getAvailableTokens(String key, Bandwidth bandwidth);
+
+	/**
+	 * Applies changed limits to the live buckets after a reload of the rate
+	 * limit rules, keeping the tokens they consumed. Stores applying the
+	 * bandwidth passed with every request have nothing to do.
+	 *
+	 * @param bandwidthOfKey new bandwidth of a bucket key
+	 * @return number of buckets changed
+	 */
+	default int migrate(Function<String, Bandwidth> bandwidthOfKey) {
+		return 0;
+	}
+}
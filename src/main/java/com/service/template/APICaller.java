@@ -1,68 +1,52 @@
 package com.service.template;
 import com.utilities.LogUtil;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.security.cert.X509Certificate;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-
-import javax.net.ssl.SSLContext;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.conn.ConnectTimeoutException;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
-import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.pojo.Property;
-import com.service.MTLSCertificationDetectionService;
+import com.service.OutboundHttpClientRegistry;
+import com.service.iso8583.Iso8583ChannelPool;
+import com.service.iso8583.Iso8583MessageFactoryService;
 import com.solab.iso8583.IsoMessage;
-import com.solab.iso8583.IsoType;
-import com.solab.iso8583.MessageFactory;
-import com.solab.iso8583.impl.SimpleTraceGenerator;
 
 import lombok.Cleanup;
 
 @Service
 public class APICaller {
 
-	private static final int CONNECT_TIMEOUT_MS = 5000;
-	private static final int SOCKET_TIMEOUT_MS = 5000;
-	private static final int CONNECTION_REQUEST_TIMEOUT_MS = 5000;
 	private static final int DEFAULT_HTTPS_PORT = 443;
 
 	private final ObjectMapper objectMapper;
 
-	private final MTLSCertificationDetectionService mTlsCertificationDetectionService;
+	private final OutboundHttpClientRegistry outboundHttpClientRegistry;
+
+	private final Iso8583ChannelPool iso8583ChannelPool;
 
-	private final Property property;
+	private final Iso8583MessageFactoryService iso8583MessageFactoryService;
 
-	public APICaller(ObjectMapper objectMapper, MTLSCertificationDetectionService mTlsCertificationDetectionService,
-			Property property) {
+	public APICaller(ObjectMapper objectMapper, OutboundHttpClientRegistry outboundHttpClientRegistry,
+			Iso8583ChannelPool iso8583ChannelPool, Iso8583MessageFactoryService iso8583MessageFactoryService) {
 		this.objectMapper = objectMapper;
-		this.mTlsCertificationDetectionService = mTlsCertificationDetectionService;
-		this.property = property;
+		this.outboundHttpClientRegistry = outboundHttpClientRegistry;
+		this.iso8583ChannelPool = iso8583ChannelPool;
+		this.iso8583MessageFactoryService = iso8583MessageFactoryService;
 	}
 
 	/**
@@ -82,51 +66,12 @@ public class APICaller {
 				URI uri = URI.create(URL);
 				String host = uri.getHost();
 				int port = uri.getPort() == -1 ? DEFAULT_HTTPS_PORT : uri.getPort();
-				// Check if MTLS is required
-				boolean mtls = mTlsCertificationDetectionService.isMTLSActive(host, port);
-				Map<String, X509Certificate[]> certChains = mTlsCertificationDetectionService.loadClientCertChains(
-						log,
-						property.getServer_ssl_key_store(),
-						property.getServer_ssl_key_store_password(),
-						property.getServer_ssl_key_store_type());
-				// Create SSL context with smart cert selection if needed
-				boolean useSmartSelection = mtls && certChains.size() > 1;
-				if (useSmartSelection) {
-					log.info("MTLS active and multiple certs found — enabling smart selection");
-				}
-				SSLContext sslContext = mTlsCertificationDetectionService.createSSLContext(
-						log,
-						property.getServer_ssl_protocol(),
-						property.getServer_ssl_key_store(),
-						property.getServer_ssl_key_store_password(),
-						property.getServer_ssl_key_store_type(),
-						property.getServer_ssl_trust_store(),
-						property.getServer_ssl_trust_store_password(),
-						property.getServer_ssl_trust_store_type(),
-						!useSmartSelection,
-						null);
-				// Enforce TLS versions + hostname verification
-				SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(
-						sslContext,
-						property.getServer_ssl_enabled_protocols(),
-						null,
-						SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+				// Pooled client per host:port, SSLContext & MTLS detection are done once per target
+				CloseableHttpClient httpClient = outboundHttpClientRegistry.getClient(log, host, port);
 				/*
 				 * List<NameValuePair> params = new ArrayList<>();
 				 * params.add(new BasicNameValuePair("", ));
 				 */
-				RequestConfig requestConfig = RequestConfig.custom()
-						.setConnectTimeout(CONNECT_TIMEOUT_MS)// in miliseconds
-						.setSocketTimeout(SOCKET_TIMEOUT_MS)// in miliseconds
-						.setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS)// in miliseconds
-						.build();
-				@Cleanup
-				CloseableHttpClient httpClient = HttpClients.custom()
-						.setSSLSocketFactory(sslConnectionSocketFactory)
-						.setSSLContext(sslContext)
-						.setDefaultRequestConfig(requestConfig)
-						// .setConnectionManager()
-						.build();
 				HttpPost httpRequest = new HttpPost(URL);
 				/*
 				 * HttpGet httpRequest = new HttpGet(URL);
@@ -193,44 +138,13 @@ public class APICaller {
 				URI uri = URI.create(URL);
 				String host = uri.getHost();
 				int port = uri.getPort() == -1 ? DEFAULT_HTTPS_PORT : uri.getPort();
-				// Check if MTLS is required
-				boolean mtls = mTlsCertificationDetectionService.isMTLSActive(host, port);
-				Map<String, X509Certificate[]> certChains = mTlsCertificationDetectionService.loadClientCertChains(
-						log,
-						property.getServer_ssl_key_store(),
-						property.getServer_ssl_key_store_password(),
-						property.getServer_ssl_key_store_type());
-				// Create SSL context with smart cert selection if needed
-				boolean useSmartSelection = mtls && certChains.size() > 1;
-				if (useSmartSelection) {
-					log.info("MTLS active and multiple certs found — enabling smart selection");
-				}
-				SSLContext sslContext = mTlsCertificationDetectionService.createSSLContext(
-						log,
-						property.getServer_ssl_protocol(),
-						property.getServer_ssl_key_store(),
-						property.getServer_ssl_key_store_password(),
-						property.getServer_ssl_key_store_type(),
-						property.getServer_ssl_trust_store(),
-						property.getServer_ssl_trust_store_password(),
-						property.getServer_ssl_trust_store_type(),
-						!useSmartSelection,
-						null);
+				// Shared pooled client, already started & must not be closed here since the
+				// callback completes after this method returns
+				CloseableHttpAsyncClient httpClient = outboundHttpClientRegistry.getAsyncClient(log, host, port);
 				/*
 				 * List<NameValuePair> params = new ArrayList<>();
 				 * params.add(new BasicNameValuePair("", ));
 				 */
-				RequestConfig requestConfig = RequestConfig.custom()
-						.setConnectTimeout(CONNECT_TIMEOUT_MS)
-						.setSocketTimeout(SOCKET_TIMEOUT_MS)
-						.setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS)
-						.build();
-				@Cleanup
-				CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
-						.setSSLContext(sslContext)
-						.setDefaultRequestConfig(requestConfig)
-						.build();
-				httpClient.start();
 				HttpPost httpRequest = new HttpPost(URL);
 				/*
 				 * HttpGet httpRequest = new HttpGet(URL);
@@ -281,10 +195,8 @@ public class APICaller {
 					}
 				});
 			}
-		} catch (SocketTimeoutException | ConnectTimeoutException e) {
-			result.completeExceptionally(e);
-			LogUtil.logError(log, e);
 		} catch (Throwable e) {
+			// Connect & socket timeouts surface in the callback's failed()
 			result.completeExceptionally(e);
 			LogUtil.logError(log, e);
 		} finally {
@@ -297,102 +209,34 @@ public class APICaller {
 	}
 
 	/**
-	 * ISO 8583 API call with proper resource management and length header handling
+	 * ISO 8583 API call over the pooled, persistent switch connections
 	 * 
 	 * @param log Logger instance
 	 * @return ISO response message or null if error occurs
 	 */
 	public IsoMessage iso8583Api(Logger log) {
 		IsoMessage result = null;
-		String ip = "";
-		int port = 0;
 		try {
-			log.info("IP: " + ip);
-			log.info("PORT: " + port);
-			// Create a new MessageFactory
-			MessageFactory<IsoMessage> requestFactory = new MessageFactory<>();
-			requestFactory.setUseBinaryMessages(true); // Use binary messages for efficiency
-			requestFactory.setAssignDate(true);
-			requestFactory.setTraceNumberGenerator(new SimpleTraceGenerator((int) (System.currentTimeMillis() % 100000)));
-
-			// Create a new ISO 8583 message
-			IsoMessage request = requestFactory.newMessage(0x200);
-			request.setValue(3, "000000", IsoType.NUMERIC, 6); // Processing Code (Sale)
-			request.setValue(4, "10000", IsoType.NUMERIC, 12); // Transaction Amount (in cents)
-			request.setValue(7, "0729075811", IsoType.NUMERIC, 10); // Transmission Date and Time (MMDDhhmmss)
-			request.setValue(11, "123456", IsoType.NUMERIC, 6); // System Trace Audit Number
-			request.setValue(41, "12345678", IsoType.ALPHA, 8); // Card Acceptor Terminal ID
-			request.setValue(42, "EXTIOTECH", IsoType.ALPHA, 12); // Card Acceptor ID
+			// STAN (field 11) & transmission date are assigned by the shared factory
+			IsoMessage request = iso8583MessageFactoryService.financial()
+					.processingCode("000000") // Processing Code (Sale)
+					.amount(10000) // Transaction Amount (in cents)
+					.terminalId("12345678") // Card Acceptor Terminal ID
+					.merchantId("EXTIOTECH") // Card Acceptor ID
+					.build();
 
 			// Calculate and set the Message Authentication Code (MAC) if needed
 
-			// Convert the message to byte array for transmission over the network
-			log.info("Request: " + request.debugString());
-			byte[] messageBytes = request.writeData();
-
-			// Prepare message with length header (2 bytes)
-			@Cleanup
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			@Cleanup
-			DataOutputStream dos = new DataOutputStream(baos);
-			dos.writeShort(messageBytes.length); // Write length header
-			dos.write(messageBytes);
-			byte[] messageWithHeader = baos.toByteArray();
-
-			@Cleanup
-			Socket socket = new Socket();
-			// Set timeouts
-			socket.connect(new InetSocketAddress(ip, port), CONNECT_TIMEOUT_MS);
-			socket.setSoTimeout(SOCKET_TIMEOUT_MS);
-
-			@Cleanup
-			OutputStream outputStream = socket.getOutputStream();
-			@Cleanup
-			InputStream inputStream = socket.getInputStream();
-
-			// Send message
-			outputStream.write(messageWithHeader);
-			outputStream.flush();
-
-			// Read length header (2 bytes)
-			byte[] lengthBytes = new byte[2];
-			int headerBytesRead = inputStream.read(lengthBytes);
-			if (headerBytesRead != 2) {
-				log.error("Failed to read length header, got {} bytes", headerBytesRead);
-				return result;
-			}
-
-			int messageLength = ((lengthBytes[0] & 0xFF) << 8) | (lengthBytes[1] & 0xFF);
-			log.info("Responded message length: {}", messageLength);
-
-			// Read the actual message
-			byte[] responseBytes = new byte[messageLength];
-			int totalBytesRead = 0;
-			while (totalBytesRead < messageLength) {
-				int bytesRead = inputStream.read(responseBytes, totalBytesRead, messageLength - totalBytesRead);
-				if (bytesRead == -1) {
-					log.error("Unexpected end of stream, read {} of {} bytes", totalBytesRead, messageLength);
-					return result;
-				}
-				totalBytesRead += bytesRead;
-			}
-
-			log.info("Successfully read {} bytes", totalBytesRead);
-
-			// Parse response
-			MessageFactory<IsoMessage> responseFactory = new MessageFactory<>();
-			responseFactory.setUseBinaryMessages(true);
-			result = responseFactory.parseMessage(responseBytes, 0);
+			// Send over a shared channel, response is correlated by STAN + terminal ID
+			result = iso8583ChannelPool.send(log, request).get();
 			log.info("Response: {}", result.debugString());
-		} catch (SocketTimeoutException | ConnectTimeoutException | SocketException e) {
+		} catch (ExecutionException e) {
+			LogUtil.logError(log, e.getCause() != null ? e.getCause() : e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			LogUtil.logError(log, e);
 		} catch (Throwable e) {
 			LogUtil.logError(log, e);
-		} finally {
-			try {
-
-			} catch (Throwable e) {
-			}
 		}
 		return result;
 	}
@@ -0,0 +1,168 @@
+package com.utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Immutable extractor of a fixed set of dot-notated fields (e.g.
+ * {@code user.id}, {@code items.0.sku}) from a JSON document, compiled once
+ * from the field paths.
+ *
+ * <p>
+ * All fields are read in a single streaming pass: only objects & arrays on the
+ * way to a field are descended into, everything else is skipped without being
+ * parsed into a tree. Scalars are returned as text, objects & arrays as their
+ * JSON, null values count as not found.
+ * </p>
+ *
+ * <p>
+ * A document with a duplicated field name yields no fields: the first
+ * occurrence would be found here while Jackson data binding keeps the last, so
+ * e.g. {@code {"userId":"a","userId":"b"}} could be keyed as one user and
+ * served as another. The document is therefore read to its end once every
+ * field is found, with {@link JsonParser.Feature#STRICT_DUPLICATE_DETECTION}.
+ * </p>
+ *
+ * Instances are thread-safe.
+ */
+public final class JsonFieldExtractor {
+
+	private final Set<String> paths;
+
+	// Dot paths of the objects / arrays containing a field, e.g. "user" for
+	// "user.id"
+	private final Set<String> containers;
+
+	private JsonFieldExtractor(Collection<String> paths) {
+		Set<String> fields = new LinkedHashSet<>();
+		Set<String> parents = new LinkedHashSet<>();
+		for (String path : paths) {
+			if (path == null || path.isBlank()) {
+				continue;
+			}
+			String field = path.trim();
+			fields.add(field);
+			for (int dot = field.indexOf('.'); dot > 0; dot = field.indexOf('.', dot + 1)) {
+				parents.add(field.substring(0, dot));
+			}
+		}
+		this.paths = Collections.unmodifiableSet(fields);
+		this.containers = Set.copyOf(parents);
+	}
+
+	/**
+	 * Compiles an extractor of the given dot-notated field paths.
+	 */
+	public static JsonFieldExtractor compile(Collection<String> paths) {
+		return new JsonFieldExtractor(paths);
+	}
+
+	/**
+	 * Reads the fields from the JSON document in one pass. The stream is read to
+	 * the end of the document, it isn't closed.
+	 *
+	 * @return field path to value, for the fields found, empty if a field name
+	 *         is duplicated anywhere in the document
+	 */
+	public Map<String, String> extract(ObjectMapper objectMapper, InputStream json) throws IOException {
+		Map<String, String> found = new HashMap<>();
+		if (paths.isEmpty()) {
+			return found;
+		}
+		try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+			if (parser.nextToken() != null) {
+				walk(objectMapper, parser, "", found);
+				// Rest of the document, for duplicates of the fields found
+				while (parser.nextToken() != null) {
+					parser.skipChildren();
+				}
+			}
+		} catch (JsonParseException e) {
+			if (e.getOriginalMessage() != null && e.getOriginalMessage().startsWith("Duplicate field")) {
+				return new HashMap<>();
+			}
+			throw e;
+		}
+		return found;
+	}
+
+	/**
+	 * Visits the value at the parser's current token.
+	 *
+	 * @return true once all fields are found
+	 */
+	private boolean walk(ObjectMapper objectMapper, JsonParser parser, String path, Map<String, String> found)
+			throws IOException {
+		JsonToken token = parser.currentToken();
+		if (!path.isEmpty() && paths.contains(path)) {
+			if (token.isScalarValue()) {
+				if (token != JsonToken.VALUE_NULL) {
+					found.put(path, parser.getText());
+				}
+			} else {
+				JsonNode node = objectMapper.readTree(parser);
+				found.put(path, node.toString());
+				if (containers.contains(path)) {
+					// Other fields below this one, e.g. "user" & "user.id"
+					findBelow(node, path, found);
+				}
+			}
+			return found.size() == paths.size();
+		}
+		if (!path.isEmpty() && !containers.contains(path)) {
+			// No field below this value
+			parser.skipChildren();
+			return false;
+		}
+		String prefix = path.isEmpty() ? "" : path + ".";
+		if (token == JsonToken.START_OBJECT) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.currentName();
+				parser.nextToken();
+				if (walk(objectMapper, parser, prefix + name, found)) {
+					return true;
+				}
+			}
+		} else if (token == JsonToken.START_ARRAY) {
+			for (int index = 0; parser.nextToken() != JsonToken.END_ARRAY; index++) {
+				if (walk(objectMapper, parser, prefix + index, found)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void findBelow(JsonNode node, String path, Map<String, String> found) {
+		String prefix = path + ".";
+		for (String field : paths) {
+			if (field.startsWith(prefix)) {
+				JsonNode value = node.at("/" + field.substring(prefix.length()).replace('.', '/'));
+				if (!value.isMissingNode() && !value.isNull()) {
+					found.put(field, value.isValueNode() ? value.asText() : value.toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Field paths extracted, in compile order
+	 */
+	public Set<String> getPaths() {
+		return paths;
+	}
+}
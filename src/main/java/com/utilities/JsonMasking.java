@@ -1,16 +1,28 @@
 package com.utilities;
 
-import java.util.Iterator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Utility component for masking sensitive fields in JSON data.
@@ -25,17 +37,45 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 @Component
 public class JsonMasking {
 
-	/** ObjectMapper instance for JSON processing */
-	private final ObjectMapper objectMapper;
+	/**
+	 * Factory of the masking parsers / generators, the ObjectMapper's settings
+	 * with characters outside the BMP written as-is in UTF-8 output (not escaped
+	 * as surrogate pairs), so all paths render the same text.
+	 */
+	private final JsonFactory jsonFactory;
 
 	/** Thread-safe set of field names to be masked */
 	private Set<String> fields2Mask = ConcurrentHashMap.newKeySet();
 
 	/**
-	 * Field names (lower-case) treated as card numbers. These are partially masked
-	 * - keeping the first 8 and last 4 digits visible - rather than fully masked.
+	 * Case-insensitive matcher compiled from fields2Mask, replaced as a whole when
+	 * fields are added so readers never lower-case a field name.
+	 */
+	private volatile SensitiveKeyMatcher fieldMatcher;
+
+	/**
+	 * Field names treated as card numbers (compared case-insensitively). These are
+	 * partially masked - keeping the first 8 and last 4 digits visible - rather than
+	 * fully masked.
 	 */
-	private static final Set<String> CARD_FIELDS = Set.of("card_no", "cardno", "pan");
+	private static final SensitiveKeyMatcher CARD_FIELDS = SensitiveKeyMatcher.compile(Set.of("card_no", "cardno", "pan"));
+
+	/** Pre-filled mask for values up to 64 characters. */
+	private static final char[] ASTERISKS = "*".repeat(64).toCharArray();
+
+	/** Largest output buffer kept for reuse. */
+	private static final int MAX_POOLED_BUFFER = 64 * 1024;
+
+	/** Bodies larger than this are not rendered into the log at all. */
+	private static final int MAX_LOGGED_BODY = 1024 * 1024;
+
+	/** Number of output buffers kept for reuse. */
+	private static final int MAX_POOLED_BUFFERS = 32;
+
+	/** Output buffers of masked log bodies, reused across requests. */
+	private final Queue<ReusableByteArrayOutputStream> buffers = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pooledBuffers = new AtomicInteger();
 
 	/** Number of leading characters kept visible for a card number. */
 	private static final int CARD_PREFIX_VISIBLE = 8;
@@ -49,12 +89,15 @@ public class JsonMasking {
 	 * @param objectMapper Jackson ObjectMapper instance
 	 */
 	public JsonMasking(ObjectMapper objectMapper) {
-		this.objectMapper = objectMapper;
+		this.jsonFactory = objectMapper.getFactory().rebuild()
+				.enable(JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8)
+				.build();
 		// Seed a sensible default set of sensitive field names (stored lower-case).
 		// Consumers can extend this set at runtime via addFields2Mask(...).
 		this.fields2Mask.addAll(Set.of(
 				"password", "pin", "otp", "cvv", "cvc", "card_no", "cardno", "pan",
 				"secret", "token", "access-token", "refresh-token", "api-key"));
+		this.fieldMatcher = SensitiveKeyMatcher.compile(this.fields2Mask);
 	}
 
 	/**
@@ -62,12 +105,15 @@ public class JsonMasking {
 	 * 
 	 * @param fields2Mask Set of field names to be added to masking set
 	 */
-	public void addFields2Mask(Set<String> fields2Mask) {
+	public synchronized void addFields2Mask(Set<String> fields2Mask) {
 		this.fields2Mask.addAll(fields2Mask);
+		this.fieldMatcher = SensitiveKeyMatcher.compile(this.fields2Mask);
 	}
 
 	/**
 	 * Masks sensitive fields in the provided JSON string.
+	 * Tokens are streamed from a JsonParser straight into a JsonGenerator; only the
+	 * values of sensitive fields are rewritten, no tree is built.
 	 * Includes detailed error logging with stack trace information.
 	 *
 	 * @param log        SLF4J Logger instance for error logging
@@ -77,9 +123,12 @@ public class JsonMasking {
 	 */
 	public String maskJson(Logger log, String jsonString) throws Throwable {
 		try {
-			JsonNode rootNode = objectMapper.readTree(jsonString);
-			JsonNode maskedNode = maskNode(rootNode);
-			return objectMapper.writeValueAsString(maskedNode);
+			StringWriter writer = new StringWriter(jsonString.length());
+			try (JsonParser parser = jsonFactory.createParser(jsonString);
+					JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+				maskStream(parser, generator);
+			}
+			return writer.toString();
 		} catch (Throwable e) {
 			LogUtil.logError(log, e);
 			throw e;
@@ -87,97 +136,238 @@ public class JsonMasking {
 	}
 
 	/**
-	 * Recursively masks a JsonNode based on its type (object or array).
-	 * 
-	 * @param node JsonNode to be masked
-	 * @return Masked JsonNode
+	 * Masks sensitive fields of UTF-8 encoded JSON bytes, writing the masked UTF-8
+	 * JSON to {@code out}. The input is never decoded into a String.
+	 *
+	 * @param log    SLF4J Logger instance for error logging
+	 * @param json   Input JSON bytes
+	 * @param offset Start of the JSON in the array
+	 * @param length Number of JSON bytes
+	 * @param out    Destination of the masked JSON
+	 * @throws Throwable if any error occurs during JSON processing
 	 */
-	private JsonNode maskNode(JsonNode node) {
-		if (node.isObject()) {
-			return maskObjectNode((ObjectNode) node);
-		} else if (node.isArray()) {
-			return maskArrayNode((ArrayNode) node);
+	public void maskJson(Logger log, byte[] json, int offset, int length, OutputStream out) throws Throwable {
+		try {
+			try (JsonParser parser = jsonFactory.createParser(json, offset, length);
+					JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+				maskStream(parser, generator);
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
 		}
-		return node;
 	}
 
 	/**
-	 * Masks sensitive fields within an ObjectNode.
-	 * Handles nested objects and arrays recursively while masking designated
-	 * fields.
-	 * 
-	 * @param objectNode ObjectNode to be processed
-	 * @return Masked ObjectNode
-	 */
-	private ObjectNode maskObjectNode(ObjectNode objectNode) {
-		ObjectNode maskedObject = objectMapper.createObjectNode();
-		Iterator<String> fieldNames = objectNode.fieldNames();
-
-		while (fieldNames.hasNext()) {
-			String fieldName = fieldNames.next();
-			JsonNode fieldValue = objectNode.get(fieldName);
-
-			if (shouldMaskField(fieldName)) {
-				// Use the source fieldValue (maskedObject does not yet contain this key) and
-				// guard against null/missing nodes to avoid a NullPointerException.
-				String raw = (fieldValue == null || fieldValue.isNull()) ? "" : fieldValue.asText();
-				// Card numbers keep the first 8 and last 4 digits visible; everything else is
-				// fully masked with asterisks of the same length.
-				maskedObject.put(fieldName, isCardField(fieldName) ? maskCardNumber(raw) : "*".repeat(raw.length()));
-			} else if (fieldValue.isObject()) {
-				maskedObject.set(fieldName, maskObjectNode((ObjectNode) fieldValue));
-			} else if (fieldValue.isArray()) {
-				maskedObject.set(fieldName, maskArrayNode((ArrayNode) fieldValue));
-			} else {
-				maskedObject.set(fieldName, fieldValue);
-			}
+	 * Wraps a JSON body for logging. Masking only happens when the log statement
+	 * is actually rendered (toString), into a pooled buffer, and the only String
+	 * created is the final log text. Non-JSON or unparseable bodies are never
+	 * rendered verbatim.
+	 *
+	 * @param log  SLF4J Logger instance for error logging
+	 * @param body UTF-8 encoded body
+	 * @return Object whose toString is the masked body
+	 */
+	public Object maskedForLog(Logger log, byte[] body) {
+		return body == null ? "" : maskedForLog(log, ByteBuffer.wrap(body));
+	}
+
+	/**
+	 * Same as {@link #maskedForLog(Logger, byte[])} for a body held in a buffer,
+	 * e.g. a memory-mapped request body, which is read in place when rendered.
+	 * Bodies above 1 MB are summarized by size instead of being rendered.
+	 *
+	 * @param log  SLF4J Logger instance for error logging
+	 * @param body UTF-8 encoded body between position and limit, not consumed
+	 * @return Object whose toString is the masked body
+	 */
+	public Object maskedForLog(Logger log, ByteBuffer body) {
+		if (body == null) {
+			return "";
+		}
+		int start = body.position();
+		int end = body.limit();
+		// Trim JSON whitespace on the bytes
+		while (start < end && isJsonWhitespace(body.get(start))) {
+			start++;
 		}
+		while (end > start && isJsonWhitespace(body.get(end - 1))) {
+			end--;
+		}
+		if (start == end) {
+			return "";
+		}
+		// Only attempt JSON masking on payloads that look like JSON; anything else is
+		// omitted rather than risk logging sensitive data in the clear.
+		if (body.get(start) != '{' && body.get(start) != '[') {
+			return "[non-JSON body omitted]";
+		}
+		if (end - start > MAX_LOGGED_BODY) {
+			return "[body of " + (end - start) + " bytes omitted]";
+		}
+		return new MaskedBody(log, body.duplicate().position(start).limit(end).slice());
+	}
 
-		return maskedObject;
+	private static boolean isJsonWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
 	}
 
 	/**
-	 * Masks elements within an ArrayNode.
-	 * Recursively processes array elements that are objects or nested arrays.
-	 * 
-	 * @param arrayNode ArrayNode to be processed
-	 * @return Masked ArrayNode
+	 * Lazily masked body, rendered by the logging framework.
 	 */
-	private ArrayNode maskArrayNode(ArrayNode arrayNode) {
-		ArrayNode maskedArray = objectMapper.createArrayNode();
+	private final class MaskedBody {
+		private final Logger log;
+		private final ByteBuffer body;
 
-		for (JsonNode element : arrayNode) {
-			if (element.isObject()) {
-				maskedArray.add(maskObjectNode((ObjectNode) element));
-			} else if (element.isArray()) {
-				maskedArray.add(maskArrayNode((ArrayNode) element));
-			} else {
-				maskedArray.add(element);
+		private MaskedBody(Logger log, ByteBuffer body) {
+			this.log = log;
+			this.body = body;
+		}
+
+		@Override
+		public String toString() {
+			ReusableByteArrayOutputStream out = acquireBuffer(body.remaining());
+			try {
+				if (body.hasArray()) {
+					maskJson(log, body.array(), body.arrayOffset() + body.position(), body.remaining(), out);
+				} else {
+					maskJson(log, new ByteBufferInputStream(body.duplicate()), out);
+				}
+				return out.toString(StandardCharsets.UTF_8);
+			} catch (Throwable e) {
+				return "[unmaskable body omitted]";
+			} finally {
+				releaseBuffer(out);
 			}
 		}
+	}
 
-		return maskedArray;
+	/**
+	 * Streaming variant of {@link #maskJson(Logger, byte[], int, int, OutputStream)}
+	 * for bodies without an accessible array.
+	 */
+	private void maskJson(Logger log, InputStream json, OutputStream out) throws Throwable {
+		try {
+			try (JsonParser parser = jsonFactory.createParser(json);
+					JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+				maskStream(parser, generator);
+			}
+		} catch (Throwable e) {
+			LogUtil.logError(log, e);
+			throw e;
+		}
 	}
 
 	/**
-	 * Determines if a field should be masked based on its name.
-	 * Field names are compared case-insensitively.
-	 * 
-	 * @param fieldName Name of the field to check
-	 * @return true if the field should be masked, false otherwise
+	 * InputStream over the remaining bytes of a buffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+	}
+
+	/**
+	 * ByteArrayOutputStream that can be reset and handed to the next caller.
 	 */
-	private boolean shouldMaskField(String fieldName) {
-		return this.fields2Mask.contains(fieldName.toLowerCase());
+	private static final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+		private ReusableByteArrayOutputStream(int size) {
+			super(size);
+		}
+
+		private int capacity() {
+			return buf.length;
+		}
+	}
+
+	private ReusableByteArrayOutputStream acquireBuffer(int expectedSize) {
+		ReusableByteArrayOutputStream out = buffers.poll();
+		if (out == null) {
+			return new ReusableByteArrayOutputStream(Math.min(Math.max(expectedSize, 256), MAX_POOLED_BUFFER));
+		}
+		pooledBuffers.decrementAndGet();
+		return out;
+	}
+
+	private void releaseBuffer(ReusableByteArrayOutputStream out) {
+		// Do not keep buffers grown by unusually large bodies
+		if (out.capacity() > MAX_POOLED_BUFFER) {
+			return;
+		}
+		if (pooledBuffers.incrementAndGet() > MAX_POOLED_BUFFERS) {
+			pooledBuffers.decrementAndGet();
+			return;
+		}
+		out.reset();
+		buffers.offer(out);
 	}
 
 	/**
-	 * Determines if a field holds a card number (compared case-insensitively).
+	 * Copies every token from parser to generator, replacing the value of each
+	 * sensitive field. A sensitive field holding an object or array is skipped
+	 * entirely and written as an empty string, null as an empty string, any other
+	 * scalar as its text masked with asterisks of the same length (card numbers
+	 * partially).
 	 *
-	 * @param fieldName Name of the field to check
-	 * @return true if the field is a card-number field
+	 * @param parser    Source of the JSON tokens
+	 * @param generator Destination of the masked JSON
 	 */
-	private boolean isCardField(String fieldName) {
-		return CARD_FIELDS.contains(fieldName.toLowerCase());
+	private void maskStream(JsonParser parser, JsonGenerator generator) throws IOException {
+		SensitiveKeyMatcher matcher = this.fieldMatcher;
+		JsonToken token;
+		while ((token = parser.nextToken()) != null) {
+			generator.copyCurrentEvent(parser);
+			if (token != JsonToken.FIELD_NAME) {
+				continue;
+			}
+			String fieldName = parser.currentName();
+			if (!matcher.matches(fieldName)) {
+				continue;
+			}
+			JsonToken valueToken = parser.nextToken();
+			if (valueToken == JsonToken.START_OBJECT || valueToken == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				generator.writeString("");
+			} else if (valueToken == JsonToken.VALUE_NULL) {
+				generator.writeString("");
+			} else if (CARD_FIELDS.matches(fieldName)) {
+				generator.writeString(maskCardNumber(parser.getText()));
+			} else {
+				writeAsterisks(generator, parser.getTextLength());
+			}
+		}
+	}
+
+	/**
+	 * Writes a string of {@code length} asterisks without building it, for the
+	 * usual short values.
+	 */
+	private static void writeAsterisks(JsonGenerator generator, int length) throws IOException {
+		if (length <= ASTERISKS.length) {
+			generator.writeString(ASTERISKS, 0, length);
+		} else {
+			generator.writeString("*".repeat(length));
+		}
 	}
 
 	/**
@@ -19,6 +19,9 @@ public class RequestLoggingUtil {
 			"authorization", "username", "password", "client-id", "client-secret", "api-key",
 			"access-token", "refresh-token", "session", "cookie", "x-api-key", "card_no", "cardno", "cvv", "cvc"));
 
+	// Compiled once, checks a name against all keys in one pass
+	private static final SensitiveKeyMatcher SENSITIVE_KEY_MATCHER = SensitiveKeyMatcher.compile(SENSITIVE_KEYS);
+
 	private static final String MASK_VALUE = "***REDACTED***";
 	private static final int MAX_PARAM_LENGTH = 1000; // Prevent log flooding
 
@@ -104,8 +107,7 @@ public class RequestLoggingUtil {
 			return false;
 		}
 
-		String lowerKey = key.toLowerCase();
-		return SENSITIVE_KEYS.stream().anyMatch(lowerKey::contains);
+		return SENSITIVE_KEY_MATCHER.containsAny(key);
 	}
 
 	/**
@@ -0,0 +1,210 @@
+package com.utilities;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Immutable, case-insensitive matcher of sensitive key names, compiled once
+ * from a set of keys.
+ *
+ * <p>
+ * The keys are folded to lower case and stored in a trie with Aho-Corasick
+ * failure links, so both checks run in a single pass over the input without
+ * allocating:
+ * </p>
+ * <ul>
+ * <li>{@link #matches(CharSequence)} - the whole input equals a key (JSON field
+ * masking)</li>
+ * <li>{@link #containsAny(CharSequence)} - any key occurs inside the input
+ * (header / parameter masking), O(input length) regardless of key count</li>
+ * </ul>
+ * <p>
+ * ASCII characters are folded on the fly; keys containing non-ASCII characters
+ * fall back to a lower-cased set lookup.
+ * </p>
+ *
+ * Instances are thread-safe. To change the keys compile a new matcher and swap
+ * the reference.
+ */
+public final class SensitiveKeyMatcher {
+
+	private static final int ALPHABET = 128;
+
+	// Trie edges, -1 if absent
+	private final int[][] trie;
+
+	// Full transition table (trie + failure links) used by containsAny
+	private final int[][] automaton;
+
+	// State ends a key
+	private final boolean[] terminal;
+
+	// State ends a key or has one as suffix
+	private final boolean[] output;
+
+	// Keys with non-ASCII characters, lower-cased
+	private final Set<String> nonAsciiKeys;
+
+	private final int size;
+
+	private SensitiveKeyMatcher(Collection<String> keys) {
+		Set<String> nonAscii = new HashSet<>();
+		int capacity = 1;
+		for (String key : keys) {
+			capacity += key != null ? key.length() : 0;
+		}
+		int[][] trieStates = new int[capacity][];
+		boolean[] terminalStates = new boolean[capacity];
+		trieStates[0] = newRow();
+		int states = 1;
+		int count = 0;
+		for (String key : keys) {
+			if (key == null || key.isEmpty()) {
+				continue;
+			}
+			count++;
+			if (!isAscii(key)) {
+				nonAscii.add(key.toLowerCase(Locale.ROOT));
+				continue;
+			}
+			int state = 0;
+			for (int i = 0; i < key.length(); i++) {
+				int c = fold(key.charAt(i));
+				if (trieStates[state][c] < 0) {
+					trieStates[states] = newRow();
+					trieStates[state][c] = states++;
+				}
+				state = trieStates[state][c];
+			}
+			terminalStates[state] = true;
+		}
+		this.trie = Arrays.copyOf(trieStates, states);
+		this.terminal = Arrays.copyOf(terminalStates, states);
+		this.output = Arrays.copyOf(terminalStates, states);
+		this.automaton = buildAutomaton(states);
+		this.nonAsciiKeys = Collections.unmodifiableSet(nonAscii);
+		this.size = count;
+	}
+
+	/**
+	 * Compiles a matcher for the given keys, compared case-insensitively.
+	 */
+	public static SensitiveKeyMatcher compile(Collection<String> keys) {
+		return new SensitiveKeyMatcher(keys);
+	}
+
+	/**
+	 * Breadth-first pass computing failure links and the resulting transition
+	 * table, outputs are propagated along the failure links.
+	 */
+	private int[][] buildAutomaton(int states) {
+		int[][] table = new int[states][];
+		int[] fail = new int[states];
+		Queue<Integer> queue = new ArrayDeque<>();
+		table[0] = new int[ALPHABET];
+		for (int c = 0; c < ALPHABET; c++) {
+			int next = trie[0][c];
+			if (next > 0) {
+				fail[next] = 0;
+				queue.add(next);
+				table[0][c] = next;
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			output[state] |= output[fail[state]];
+			table[state] = new int[ALPHABET];
+			for (int c = 0; c < ALPHABET; c++) {
+				int next = trie[state][c];
+				if (next > 0) {
+					fail[next] = table[fail[state]][c];
+					queue.add(next);
+					table[state][c] = next;
+				} else {
+					table[state][c] = table[fail[state]][c];
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return true if the whole key equals one of the sensitive keys
+	 */
+	public boolean matches(CharSequence key) {
+		if (key == null || key.isEmpty()) {
+			return false;
+		}
+		int state = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char ch = key.charAt(i);
+			if (ch >= ALPHABET) {
+				return !nonAsciiKeys.isEmpty() && nonAsciiKeys.contains(key.toString().toLowerCase(Locale.ROOT));
+			}
+			state = trie[state][fold(ch)];
+			if (state < 0) {
+				return false;
+			}
+		}
+		return terminal[state];
+	}
+
+	/**
+	 * @return true if any sensitive key occurs within the text
+	 */
+	public boolean containsAny(CharSequence text) {
+		if (text == null || text.isEmpty()) {
+			return false;
+		}
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			// Non-ASCII character can't be part of an ASCII key
+			state = ch < ALPHABET ? automaton[state][fold(ch)] : 0;
+			if (output[state]) {
+				return true;
+			}
+		}
+		if (!nonAsciiKeys.isEmpty()) {
+			String lower = text.toString().toLowerCase(Locale.ROOT);
+			for (String key : nonAsciiKeys) {
+				if (lower.contains(key)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Number of keys compiled into this matcher
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static int[] newRow() {
+		int[] row = new int[ALPHABET];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	private static int fold(char ch) {
+		return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+	}
+
+	private static boolean isAscii(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) >= ALPHABET) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,206 @@
+package com.utilities;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Pool of initialized {@link Signature} engines, one bounded pool per
+ * algorithm, mode (sign / verify) and key ID.
+ *
+ * <p>
+ * A Signature returns to its initialized state after sign() / verify(), so a
+ * pooled engine skips the provider lookup, construction and key setup of
+ * {@code Signature.getInstance} + {@code initVerify}. Pools are lock-free
+ * queues rather than ThreadLocals, so they stay small with virtual threads
+ * (one engine per concurrent use, not per thread). A pool is bound to the key
+ * instance it was created for; when the key of an ID changes (reload,
+ * rotation) the pool is replaced and engines of the old key are dropped. Pools
+ * of key IDs no longer registered are evicted by {@link #retainKeys} after each
+ * key reload, so their engines don't keep a removed key reachable.
+ * </p>
+ *
+ * Latency of sign & verify is published as {@code crypto_signature_duration}
+ * with percentile histograms, tagged by operation and algorithm.
+ */
+@Component
+public class SignatureEnginePool {
+
+	/** Idle engines kept per algorithm, mode & key ID. */
+	private static final int MAX_POOLED_PER_KEY = 64;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<PoolKey, KeyPool> pools = new ConcurrentHashMap<>();
+
+	/** Provider resolved on first use of an algorithm, skips later lookups. */
+	private final Map<String, Provider> providers = new ConcurrentHashMap<>();
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	public SignatureEnginePool(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Verifies a signature over the concatenation of the given buffers with a
+	 * pooled engine. The buffers are consumed.
+	 *
+	 * @param algorithm e.g. SHA256withRSA
+	 * @param keyId     key identifier, pools are kept per key ID
+	 * @param publicKey public key currently registered for keyId
+	 * @param data      parts of the signed data, in order
+	 * @param signature signature bytes to verify
+	 * @return true if the signature is valid
+	 */
+	public boolean verify(String algorithm, String keyId, PublicKey publicKey, ByteBuffer[] data, byte[] signature)
+			throws GeneralSecurityException {
+		long start = System.nanoTime();
+		KeyPool pool = pool(algorithm, false, keyId, publicKey);
+		Signature engine = pool.borrow();
+		try {
+			for (ByteBuffer part : data) {
+				engine.update(part);
+			}
+			boolean valid = engine.verify(signature);
+			// Only engines that completed are back in their initialized state
+			pool.giveBack(engine);
+			return valid;
+		} finally {
+			timer("verify", algorithm).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Signs the given bytes with a pooled engine.
+	 *
+	 * @param algorithm  e.g. SHA256withRSA
+	 * @param keyId      key identifier, pools are kept per key ID
+	 * @param privateKey private key currently registered for keyId
+	 * @param data       bytes to sign
+	 * @return the signature bytes
+	 */
+	public byte[] sign(String algorithm, String keyId, PrivateKey privateKey, byte[] data)
+			throws GeneralSecurityException {
+		long start = System.nanoTime();
+		KeyPool pool = pool(algorithm, true, keyId, privateKey);
+		Signature engine = pool.borrow();
+		try {
+			engine.update(data);
+			byte[] signed = engine.sign();
+			pool.giveBack(engine);
+			return signed;
+		} finally {
+			timer("sign", algorithm).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Number of idle engines currently pooled for the key ID.
+	 */
+	public int idle(String algorithm, boolean sign, String keyId) {
+		KeyPool pool = pools.get(new PoolKey(algorithm, sign, keyId));
+		return pool != null ? pool.size.get() : 0;
+	}
+
+	/**
+	 * Drops the pools of key IDs that are no longer registered, with their idle
+	 * engines. A verification still in flight with a removed key may pool it
+	 * again; it is dropped on the next reload.
+	 *
+	 * @param publicKeyIds  key IDs whose verify pools are kept
+	 * @param privateKeyIds key IDs whose sign pools are kept
+	 */
+	public void retainKeys(Set<String> publicKeyIds, Set<String> privateKeyIds) {
+		pools.keySet().removeIf(k -> !(k.sign() ? privateKeyIds : publicKeyIds).contains(k.keyId()));
+	}
+
+	private KeyPool pool(String algorithm, boolean sign, String keyId, Key key) {
+		PoolKey poolKey = new PoolKey(algorithm, sign, keyId);
+		KeyPool pool = pools.get(poolKey);
+		if (pool != null && pool.key == key) {
+			return pool;
+		}
+		// New key ID or key replaced for the ID
+		return pools.compute(poolKey,
+				(k, existing) -> existing != null && existing.key == key ? existing : new KeyPool(algorithm, sign, key));
+	}
+
+	private Timer timer(String operation, String algorithm) {
+		return timers.computeIfAbsent(operation + ":" + algorithm, k -> Timer.builder("crypto_signature_duration")
+				.description("Latency of signature sign / verify with pooled engines")
+				.tag("operation", operation)
+				.tag("algorithm", algorithm)
+				.publishPercentileHistogram()
+				.register(meterRegistry));
+	}
+
+	private Signature newEngine(String algorithm) throws GeneralSecurityException {
+		Provider provider = providers.get(algorithm);
+		if (provider != null) {
+			return Signature.getInstance(algorithm, provider);
+		}
+		return Signature.getInstance(algorithm);
+	}
+
+	private record PoolKey(String algorithm, boolean sign, String keyId) {
+	}
+
+	/**
+	 * Idle engines initialized with one key.
+	 */
+	private final class KeyPool {
+		private final String algorithm;
+		private final boolean sign;
+		private final Key key;
+		private final Queue<Signature> engines = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+
+		private KeyPool(String algorithm, boolean sign, Key key) {
+			this.algorithm = algorithm;
+			this.sign = sign;
+			this.key = key;
+		}
+
+		private Signature borrow() throws GeneralSecurityException {
+			Signature engine = engines.poll();
+			if (engine != null) {
+				size.decrementAndGet();
+				return engine;
+			}
+			engine = newEngine(algorithm);
+			if (sign) {
+				engine.initSign((PrivateKey) key);
+			} else {
+				engine.initVerify((PublicKey) key);
+			}
+			// Provider is only fixed once the engine is initialized
+			providers.putIfAbsent(algorithm, engine.getProvider());
+			return engine;
+		}
+
+		private void giveBack(Signature engine) {
+			if (size.incrementAndGet() > MAX_POOLED_PER_KEY) {
+				size.decrementAndGet();
+				return;
+			}
+			engines.offer(engine);
+		}
+	}
+}
@@ -50,6 +50,9 @@ public class Tool {
 	@Autowired(required = false)
 	private RsaKeyCacheService rsaKeyCacheService;
 
+	@Autowired(required = false)
+	private SignatureEnginePool signatureEnginePool;
+
 	public List<String> downloadFileFromSftp(Logger log, String host, String username, String password,
 			String remote_path, String local_path, String knownHostsFilePath, String fingerprint) throws Throwable {
 		List<String> downloadedFiles = new ArrayList<>();
@@ -494,15 +497,22 @@ public class Tool {
 				privateKey = rsaKeyCacheService.getPrivateKey(signingKeyId);
 			}
 			if (privateKey != null) {
-				// Initialize signature with SHA256withRSA algorithm
-				java.security.Signature sig = java.security.Signature.getInstance("SHA256WithRSA");
-				sig.initSign(privateKey);
-
-				// Update signature with the input data (converted to UTF-8 bytes)
-				sig.update(input.getBytes(StandardCharsets.UTF_8));
-
-				// Generate the signature
-				byte[] signatureBytes = sig.sign();
+				byte[] signatureBytes;
+				if (signatureEnginePool != null) {
+					// Pooled engine already initialized with this key
+					signatureBytes = signatureEnginePool.sign("SHA256withRSA", signingKeyId, privateKey,
+							input.getBytes(StandardCharsets.UTF_8));
+				} else {
+					// Initialize signature with SHA256withRSA algorithm
+					java.security.Signature sig = java.security.Signature.getInstance("SHA256WithRSA");
+					sig.initSign(privateKey);
+
+					// Update signature with the input data (converted to UTF-8 bytes)
+					sig.update(input.getBytes(StandardCharsets.UTF_8));
+
+					// Generate the signature
+					signatureBytes = sig.sign();
+				}
 
 				// Return Base64-encoded signature
 				return Base64.encodeBase64String(signatureBytes);
@@ -530,6 +540,58 @@ public class Tool {
 	 */
 	public boolean verifySHA256RSA(Logger log, String plainText, String signedValue, String signingKeyId)
 			throws Throwable {
+		return verifySHA256RSA(log, (plainText).getBytes(StandardCharsets.UTF_8), signedValue, signingKeyId);
+	}
+
+	/**
+	 * Verifies a SHA256-RSA signature against raw bytes using an RSA public key,
+	 * e.g. a request body as received, without decoding it into a String first.
+	 * 
+	 * @param log          Logger instance for error logging
+	 * @param data         Original bytes that were signed
+	 * @param signedValue  Base64-encoded signature to verify
+	 * @param signingKeyId Key identifier of the cached public key
+	 * @return true if signature is valid, false otherwise
+	 * @throws Throwable if any error occurs during key loading or verification
+	 */
+	public boolean verifySHA256RSA(Logger log, byte[] data, String signedValue, String signingKeyId)
+			throws Throwable {
+		return verifySHA256RSA(log, new ByteBuffer[] { ByteBuffer.wrap(data) }, signedValue, signingKeyId);
+	}
+
+	/**
+	 * Verifies a SHA256-RSA signature over the concatenation of the given buffers,
+	 * fed to the verifier one after the other. Nothing is concatenated or copied
+	 * up front, so a large body (e.g. memory-mapped) is digested in place with
+	 * flat memory use. The buffers are consumed (position moved to limit), pass
+	 * duplicates to keep them readable.
+	 * 
+	 * @param log          Logger instance for error logging
+	 * @param data         Parts of the signed data, in order
+	 * @param signedValue  Base64-encoded signature to verify
+	 * @param signingKeyId Key identifier of the cached public key
+	 * @return true if signature is valid, false otherwise
+	 * @throws Throwable if any error occurs during key loading or verification
+	 */
+	public boolean verifySHA256RSA(Logger log, ByteBuffer[] data, String signedValue, String signingKeyId)
+			throws Throwable {
+		return verifySHA256RSA(log, data, Base64.decodeBase64(signedValue), signingKeyId);
+	}
+
+	/**
+	 * Verifies a SHA256-RSA signature, already Base64 decoded, over the
+	 * concatenation of the given buffers, see
+	 * {@link #verifySHA256RSA(Logger, ByteBuffer[], String, String)}.
+	 * 
+	 * @param log            Logger instance for error logging
+	 * @param data           Parts of the signed data, in order
+	 * @param signatureBytes Decoded signature to verify
+	 * @param signingKeyId   Key identifier of the cached public key
+	 * @return true if signature is valid, false otherwise
+	 * @throws Throwable if any error occurs during key loading or verification
+	 */
+	public boolean verifySHA256RSA(Logger log, ByteBuffer[] data, byte[] signatureBytes, String signingKeyId)
+			throws Throwable {
 		try {
 			PublicKey publicKey = null;
 
@@ -545,15 +607,22 @@ public class Tool {
 				throw new IllegalArgumentException("Public key not found for signing key ID: " + signingKeyId);
 			}
 
+			if (signatureEnginePool != null) {
+				// Pooled engine already initialized with this key, parts fed in place
+				return signatureEnginePool.verify("SHA256withRSA", signingKeyId, publicKey, data, signatureBytes);
+			}
+
 			// Initialize signature verification with SHA256withRSA algorithm
 			Signature signature = Signature.getInstance("SHA256withRSA");
 			signature.initVerify(publicKey);
 
-			// Update signature with the plain text (converted to UTF-8 bytes)
-			signature.update((plainText).getBytes(StandardCharsets.UTF_8));
+			// Feed each part incrementally, in place
+			for (ByteBuffer part : data) {
+				signature.update(part);
+			}
 
 			// Verify the signature and return the result
-			return signature.verify(Base64.decodeBase64(signedValue));
+			return signature.verify(signatureBytes);
 
 		} catch (Throwable e) {
 			LogUtil.logError(log, e);
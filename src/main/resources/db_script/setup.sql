@@ -6,4 +6,13 @@ CREATE TABLE shedlock (
   locked_at TIMESTAMP(3) NULL,
   locked_by VARCHAR(255),
   PRIMARY KEY (name)
+);
+
+-- Cluster-wide rate limit buckets (rate.limit.engine: jdbc), nodes lease tokens in chunks
+CREATE TABLE IF NOT EXISTS rate_limit_bucket (
+  key_hash BIGINT NOT NULL, -- 64-bit hash of endpoint path + rate limit key
+  tokens BIGINT NOT NULL, -- tokens not leased to any node
+  refilled_at BIGINT NOT NULL, -- epoch ms (database clock) tokens were last refilled to
+  PRIMARY KEY (key_hash),
+  INDEX idx_rate_limit_bucket_refilled_at (refilled_at)
 )
\ No newline at end of file
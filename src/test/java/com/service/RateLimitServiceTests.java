@@ -0,0 +1,311 @@
+package com.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import com.configuration.RateLimitProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pojo.bucket4j.CustomBucket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Concurrency stress tests, no Spring context: a burst of first requests for a
+ * new key must get exactly the bucket capacity, with either engine. Deferred
+ * admission must grant waiting requests at the refill rate. A reload of the
+ * rates must migrate live buckets keeping their consumed tokens. Requests the
+ * local table has no slot for are rejected (let through with fail-open) and
+ * counted. Paths of the default
+ * limit share the key's bucket. Endpoint patterns of no handler are reported.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class RateLimitServiceTests {
+
+	private static final int THREADS = 64;
+
+	private static final int REQUESTS_PER_THREAD = 4;
+
+	private static final int CAPACITY = 10;
+
+	private static final int ROUNDS = 50;
+
+	private static final String PATH = "/spring/v1/template/post";
+
+	@Test
+	@Order(1)
+	void testBucket4jCapacityUnderContention() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test bucket4j capacity under contention start-");
+		try {
+			RateLimitService rateLimitService = rateLimitService("bucket4j");
+			for (int round = 0; round < ROUNDS; round++) {
+				String key = "ip:10.0.0." + round + "|" + UUID.randomUUID();
+				List<CustomBucket> buckets = new ArrayList<>();
+				int allowed = burst(() -> {
+					CustomBucket bucket = rateLimitService.resolveBucket(key, PATH);
+					synchronized (buckets) {
+						buckets.add(bucket);
+					}
+					return rateLimitService.tryConsume(bucket);
+				});
+				assertEquals(CAPACITY, allowed, "Burst on a new key should get exactly the bucket capacity");
+				// Every request of the burst resolved the same bucket
+				buckets.forEach(bucket -> assertSame(buckets.get(0), bucket));
+			}
+		} finally {
+			log.info("-Test bucket4j capacity under contention end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testLocalCapacityUnderContention() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test local capacity under contention start-");
+		try {
+			RateLimitService rateLimitService = rateLimitService("local");
+			for (int round = 0; round < ROUNDS; round++) {
+				String key = "ip:10.0.0." + round + "|" + UUID.randomUUID();
+				int allowed = burst(() -> rateLimitService.tryConsume(key, PATH));
+				assertEquals(CAPACITY, allowed, "Burst on a new key should get exactly the bucket capacity");
+			}
+		} finally {
+			log.info("-Test local capacity under contention end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(3)
+	void testDeferredAdmission() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test deferred admission start-");
+		try {
+			for (String engine : List.of("local", "bucket4j")) {
+				// 1 token, refilled every 100 ms, waiting up to 250 ms
+				RateLimitService rateLimitService = rateLimitService(engine, new RateLimitProperties.Rate(1, 10, 1),
+						250L);
+				String key = "ip:10.0.0.1|" + UUID.randomUUID();
+				long start = System.nanoTime();
+				List<CompletableFuture<Boolean>> admissions = new ArrayList<>();
+				for (int i = 0; i < 4; i++) {
+					admissions.add(rateLimitService.tryConsumeAsync(key, PATH));
+				}
+				// Only the token in the bucket is granted at once, the waits don't block
+				assertTrue(admissions.get(0).isDone() && admissions.get(0).join(), engine);
+				assertFalse(admissions.get(1).isDone(), engine);
+				assertFalse(admissions.get(3).join(), engine + ": no token within max wait");
+				assertTrue(admissions.get(1).join() && admissions.get(2).join(), engine);
+				long waitedMillis = (System.nanoTime() - start) / 1000000;
+				assertTrue(waitedMillis >= 150, engine + ": granted before refill after " + waitedMillis + " ms");
+				rateLimitService.shutdown();
+			}
+		} finally {
+			log.info("-Test deferred admission end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(4)
+	void testReloadMigratesLiveBuckets() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test reload migrates live buckets start-");
+		try {
+			RateLimitService rateLimitService = rateLimitService("bucket4j");
+			String pattern = "/spring/v1/template/put/{id}/{ic}";
+			String key = "ip:10.0.0.1|" + UUID.randomUUID();
+			rateLimitService.updateEndpoint(log, pattern, new RateLimitProperties.Rate(5, 5, 3600));
+			// All paths matching the pattern share its bucket
+			for (int i = 0; i < 3; i++) {
+				assertTrue(rateLimitService.tryConsume(key, "/spring/v1/template/put/" + i + "/ic" + i));
+			}
+			assertEquals(2, rateLimitService.getAvailableTokens(key, "/spring/v1/template/put/9/ic9"));
+
+			int migrated = rateLimitService.updateEndpoint(log, pattern, new RateLimitProperties.Rate(50, 50, 3600));
+			assertTrue(migrated >= 1, "Live bucket of the pattern should be migrated");
+			// The 3 tokens consumed stay consumed
+			assertEquals(47, rateLimitService.getAvailableTokens(key, "/spring/v1/template/put/1/ic1"));
+			rateLimitService.shutdown();
+		} finally {
+			log.info("-Test reload migrates live buckets end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(5)
+	void testLocalNoSlotCounted() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test local no slot counted start-");
+		try {
+			for (boolean failOpen : List.of(false, true)) {
+				// 16 slots, one probe per key: most new keys find no slot
+				RateLimitProperties rateLimitProperties = RateLimitProperties.builder()
+						.defaultRate(new RateLimitProperties.Rate(CAPACITY, CAPACITY, 3600))
+						.maxWaitMillis(0L)
+						.engine("local")
+						.local(RateLimitProperties.Local.builder().maxKeys(16).maxProbes(1).failOpen(failOpen).build())
+						.build();
+				rateLimitProperties.init();
+				SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+				RateLimitService rateLimitService = rateLimitService(rateLimitProperties, meterRegistry);
+				int keys = 100;
+				int allowed = 0;
+				for (int i = 0; i < keys; i++) {
+					allowed += rateLimitService.tryConsume("ip:10.0.1." + i, PATH) ? 1 : 0;
+				}
+				double failures = meterRegistry.get("rate_limit_store_failures_total").functionCounter().count();
+				assertTrue(failures >= keys - 16, "Keys without a slot should be counted, got " + failures);
+				// Only keys holding a slot pass, unless failing open
+				assertEquals(failOpen ? keys : keys - (int) failures, allowed, "fail-open " + failOpen);
+				rateLimitService.shutdown();
+			}
+		} finally {
+			log.info("-Test local no slot counted end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(6)
+	void testPathVariablesShareDefaultBucket() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test path variables share default bucket start-");
+		try {
+			for (String engine : List.of("local", "bucket4j")) {
+				RateLimitService rateLimitService = rateLimitService(engine);
+				String key = "ip:10.0.0.1|" + UUID.randomUUID();
+				// No endpoint pattern matches, every value of {ic} drains the key's one default bucket
+				for (int i = 0; i < CAPACITY; i++) {
+					assertTrue(rateLimitService.tryConsume(key, "/spring/v1/template/get/" + i), engine);
+				}
+				assertFalse(rateLimitService.tryConsume(key, "/spring/v1/template/get/" + CAPACITY), engine);
+				assertFalse(rateLimitService.tryConsume(key, "/spring/v1/template/get-async/1"), engine);
+				assertEquals(0, rateLimitService.getAvailableTokens(key, "/spring/v1/template/get/x"), engine);
+				rateLimitService.shutdown();
+			}
+		} finally {
+			log.info("-Test path variables share default bucket end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(7)
+	void testUnmatchedPatterns() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test unmatched patterns start-");
+		try {
+			RateLimitProperties.Rate rate = new RateLimitProperties.Rate(CAPACITY, CAPACITY, 60);
+			Map<String, RateLimitProperties.Rate> endpoints = new LinkedHashMap<>();
+			endpoints.put("/spring/v1/template/get", rate);
+			endpoints.put("/spring/v1/template/get/{ic}", rate);
+			endpoints.put("/spring/v1/template/get-async/{sleepMs}", rate);
+			endpoints.put("/spring/v1/template/put/{id}/{ic}", rate);
+			RateLimitProperties rateLimitProperties = RateLimitProperties.builder()
+					.defaultRate(rate)
+					.endpoints(endpoints)
+					.build();
+			rateLimitProperties.init();
+			// Handler mapping patterns with the context path
+			List<String> handlerPaths = List.of("/spring/v1/template/post", "/spring/v1/template/get/{ic}",
+					"/spring/v1/template/get-async/{sleepMs}", "/spring/v1/template/put/{id}/{ic}",
+					"/spring/v1/template/delete");
+			assertEquals(List.of("/spring/v1/template/get"),
+					rateLimitProperties.getRules().unmatchedPatterns(handlerPaths));
+		} finally {
+			log.info("-Test unmatched patterns end-");
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * Runs THREADS x REQUESTS_PER_THREAD requests released at once.
+	 *
+	 * @return number of requests allowed
+	 */
+	private int burst(Callable<Boolean> request) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch ready = new CountDownLatch(THREADS);
+			CountDownLatch start = new CountDownLatch(1);
+			AtomicInteger allowed = new AtomicInteger();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					ready.countDown();
+					start.await();
+					for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+						if (request.call()) {
+							allowed.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			ready.await();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			return allowed.get();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private RateLimitService rateLimitService(String engine) {
+		// Refill far slower than the test runs, no wait: only the capacity is allowed
+		return rateLimitService(engine, new RateLimitProperties.Rate(CAPACITY, CAPACITY, 3600), 0L);
+	}
+
+	private RateLimitService rateLimitService(String engine, RateLimitProperties.Rate rate, long maxWaitMillis) {
+		RateLimitProperties rateLimitProperties = RateLimitProperties.builder()
+				.defaultRate(rate)
+				.maxWaitMillis(maxWaitMillis)
+				.engine(engine)
+				.build();
+		rateLimitProperties.init();
+		return rateLimitService(rateLimitProperties, new SimpleMeterRegistry());
+	}
+
+	private RateLimitService rateLimitService(RateLimitProperties rateLimitProperties,
+			SimpleMeterRegistry meterRegistry) {
+		CacheManager cacheManager = Caching.getCachingProvider().getCacheManager();
+		if (cacheManager.getCache("buckets") == null) {
+			cacheManager.createCache("buckets", new MutableConfiguration<String, CustomBucket>()
+					.setTypes(String.class, CustomBucket.class)
+					.setStoreByValue(false));
+		}
+		return new RateLimitService(rateLimitProperties, cacheManager, new ObjectMapper(), meterRegistry);
+	}
+}
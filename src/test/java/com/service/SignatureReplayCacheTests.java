@@ -0,0 +1,228 @@
+package com.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.commons.codec.binary.Base64;
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utilities.JsonMasking;
+import com.utilities.Tool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replay cache tests, no Spring context: a signature is accepted once, its
+ * repeats and Base64 variants are rejected before any RSA verification,
+ * buckets are replaced once their time slot leaves the window, and a full
+ * bucket fails open or closed as configured.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class SignatureReplayCacheTests {
+
+	private static final long MAX_CLOCK_SKEW_MS = 2000;
+
+	private static final long BUCKET_MS = 1000;
+
+	// (2 * skew / bucket) + 2
+	private static final int BUCKETS = 6;
+
+	private static final long NOW = 1_760_000_000_000L;
+
+	@Test
+	@Order(1)
+	void testReplayRejectedBeforeVerify() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test replay rejected before verify start-");
+		try {
+			Tool tool = mock(Tool.class);
+			when(tool.verifySHA256RSA(any(), any(ByteBuffer[].class), any(byte[].class), eq("spring"))).thenReturn(true);
+			AuthService authService = new AuthService(tool, new JsonMasking(new ObjectMapper()),
+					new SignatureReplayCache(300000, true, 30000, 16384, 0, false, new SimpleMeterRegistry()), null,
+					null, 1);
+			ReflectionTestUtils.setField(authService, "maxClockSkewMs", 300000L);
+			String timestamp = String.valueOf(System.currentTimeMillis());
+			ByteBuffer body = ByteBuffer.wrap("{\"amount\":1}".getBytes(StandardCharsets.UTF_8));
+			// 2048-bit RSA signature: 256 bytes, the last character carries 4 unused bits
+			byte[] signatureBytes = new byte[256];
+			new Random(8583).nextBytes(signatureBytes);
+			String signature = Base64.encodeBase64String(signatureBytes);
+
+			assertTrue(authService.isSignatureValid(log, "POST", "/spring/v1/template/post", timestamp, body,
+					signature, "spring").isAuthenticated());
+			verify(tool, times(1)).verifySHA256RSA(any(), any(ByteBuffer[].class), any(byte[].class), eq("spring"));
+
+			// Lowest bit of the last character's 6, one of its unused ones
+			String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+			int last = alphabet.indexOf(signature.charAt(signature.length() - 3));
+			String flipped = signature.substring(0, signature.length() - 3) + alphabet.charAt(last ^ 1) + "==";
+			List<String> variants = List.of(signature, signature + "=", signature.replace("=", ""), flipped);
+			for (String variant : variants) {
+				assertArrayEquals(signatureBytes, Base64.decodeBase64(variant), variant);
+				ServletException e = assertThrows(ServletException.class, () -> authService.isSignatureValid(log,
+						"POST", "/spring/v1/template/post", timestamp, body, variant, "spring"), variant);
+				assertTrue(e.getMessage().contains("Replayed request signature"), e.getMessage());
+			}
+			assertNotEquals(signature, flipped);
+			// None of the repeats reached the verifier
+			verify(tool, times(1)).verifySHA256RSA(any(), any(ByteBuffer[].class), any(byte[].class), eq("spring"));
+		} finally {
+			log.info("-Test replay rejected before verify end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testCopiesRecordedOnce() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test copies recorded once start-");
+		try {
+			SignatureReplayCache cache = replayCache(16384, false, new SimpleMeterRegistry());
+			byte[] signature = bytes("signature");
+			// Concurrent copies may all pass the lookup before any is recorded, as in
+			// AuthService: only the first record succeeds
+			assertFalse(cache.isReplay("spring", NOW, signature));
+			assertFalse(cache.isReplay("spring", NOW, signature));
+			assertTrue(cache.record("spring", NOW, signature));
+			assertFalse(cache.record("spring", NOW, signature), "Second copy should be rejected");
+			assertTrue(cache.isReplay("spring", NOW, signature));
+			// Same signature, other key ID or timestamp, isn't a replay
+			assertFalse(cache.isReplay("other", NOW, signature));
+			assertFalse(cache.isReplay("spring", NOW + 1, signature));
+			assertTrue(cache.record("spring", NOW, bytes("other")));
+		} finally {
+			log.info("-Test copies recorded once end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(3)
+	void testBucketRollover() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test bucket rollover start-");
+		try {
+			SignatureReplayCache cache = replayCache(16384, false, new SimpleMeterRegistry());
+			byte[] signature = bytes("signature");
+			// Every slot of the window is kept side by side
+			for (int slot = 0; slot < BUCKETS; slot++) {
+				assertTrue(cache.record("spring", NOW + slot * BUCKET_MS, signature));
+			}
+			for (int slot = 0; slot < BUCKETS; slot++) {
+				assertTrue(cache.isReplay("spring", NOW + slot * BUCKET_MS, signature));
+			}
+			// A slot one ring further replaces the oldest bucket
+			long later = NOW + BUCKETS * BUCKET_MS;
+			assertFalse(cache.isReplay("spring", later, signature));
+			assertTrue(cache.record("spring", later, signature));
+			assertTrue(cache.isReplay("spring", later, signature));
+			assertFalse(cache.isReplay("spring", NOW, signature), "Replaced bucket should be gone");
+			// A timestamp of the replaced slot doesn't bring the old bucket back
+			assertTrue(cache.record("spring", NOW, bytes("other")));
+			assertFalse(cache.isReplay("spring", NOW, bytes("other")));
+			assertTrue(cache.isReplay("spring", later, signature));
+			// Neighbouring slots are untouched
+			assertTrue(cache.isReplay("spring", NOW + BUCKET_MS, signature));
+		} finally {
+			log.info("-Test bucket rollover end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(4)
+	void testFullBucketFailsOpen() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test full bucket fails open start-");
+		try {
+			SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+			SignatureReplayCache cache = replayCache(16, false, meterRegistry);
+			// 16 slots at 75% load
+			for (int i = 0; i < 12; i++) {
+				assertTrue(cache.record("spring", NOW, bytes("signature-" + i)));
+			}
+			assertTrue(cache.record("spring", NOW, bytes("signature-12")), "Full bucket should accept");
+			assertTrue(cache.record("spring", NOW, bytes("signature-13")));
+			assertFalse(cache.isReplay("spring", NOW, bytes("signature-12")), "Full bucket can't record");
+			assertEquals(2, meterRegistry.counter("signature_replay_cache_full_total").count());
+			// Recorded signatures are still protected, other slots are unaffected
+			assertFalse(cache.record("spring", NOW, bytes("signature-0")));
+			assertTrue(cache.record("spring", NOW + BUCKET_MS, bytes("signature-12")));
+		} finally {
+			log.info("-Test full bucket fails open end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(5)
+	void testFullBucketFailsClosed() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test full bucket fails closed start-");
+		try {
+			SignatureReplayCache cache = replayCache(16, true, new SimpleMeterRegistry());
+			for (int i = 0; i < 12; i++) {
+				assertTrue(cache.record("spring", NOW, bytes("signature-" + i)));
+			}
+			assertThrows(IllegalStateException.class, () -> cache.record("spring", NOW, bytes("signature-12")));
+			assertFalse(cache.record("spring", NOW, bytes("signature-0")), "Replay is still reported as replay");
+			assertTrue(cache.record("spring", NOW + BUCKET_MS, bytes("signature-12")));
+		} finally {
+			log.info("-Test full bucket fails closed end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(6)
+	void testCapacityFromThroughput() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test capacity from throughput start-");
+		try {
+			assertEquals(16384, replayCache(16384, false, new SimpleMeterRegistry()).getCapacity());
+			// 1000 req/s * 30 s slot = 30000 entries at 75% load
+			SignatureReplayCache cache = new SignatureReplayCache(300000, true, 30000, 16384, 1000, false,
+					new SimpleMeterRegistry());
+			assertEquals(65536, cache.getCapacity());
+		} finally {
+			log.info("-Test capacity from throughput end-");
+			MDC.clear();
+		}
+	}
+
+	private static byte[] bytes(String signature) {
+		return signature.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static SignatureReplayCache replayCache(int capacityPerBucket, boolean failClosed,
+			SimpleMeterRegistry meterRegistry) {
+		return new SignatureReplayCache(MAX_CLOCK_SKEW_MS, true, BUCKET_MS, capacityPerBucket, 0, failClosed,
+				meterRegistry);
+	}
+}
@@ -0,0 +1,196 @@
+package com.service.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import io.github.bucket4j.Bandwidth;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Slot handling of the local store, no Spring context: a request that located
+ * its key's slot before an idle reclaim gave it to another key must not
+ * consume from that key's bucket, and a key finding no free slot is rejected
+ * (let through with fail-open) and counted.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class LocalTokenBucketStoreTests {
+
+	private static final int SLOTS = 16;
+
+	// 1 token per hour, only the capacity is available while the test runs
+	private static final Bandwidth SLOW = Bandwidth.builder()
+			.capacity(5)
+			.refillGreedy(1, Duration.ofHours(1))
+			.build();
+
+	// Full again 1 ms after a request, idle right after
+	private static final Bandwidth FAST = Bandwidth.builder()
+			.capacity(1)
+			.refillGreedy(1, Duration.ofMillis(1))
+			.build();
+
+	@Test
+	@Order(1)
+	void testStaleSlotAfterReclaim() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test stale slot after reclaim start-");
+		try {
+			// One probe, idle immediately: keys of the same home slot take it from each other
+			LocalTokenBucketStore store = new LocalTokenBucketStore(SLOTS, 0L, 1, false);
+			String[] keys = sameHomeSlot(2);
+			long first = LocalTokenBucketStore.hash(keys[0]);
+			assertEquals(0, store.reserve(keys[0], FAST, 0L));
+			// Request of the first key locates its slot...
+			int slot = store.slot(first, store.now());
+			assertTrue(slot >= 0);
+			// ...the bucket idles and the second key reclaims the slot...
+			TimeUnit.MILLISECONDS.sleep(5);
+			assertEquals(0, store.reserve(keys[1], SLOW, 0L));
+			// ...then the first key's request goes on with the slot it located
+			long interval = TimeUnit.MILLISECONDS.toNanos(1);
+			assertEquals(LocalTokenBucketStore.RETRY, store.reserve(slot, first, store.now(), interval, interval, 0L),
+					"Request must look up a slot reclaimed by another key again");
+			assertEquals(4, store.getAvailableTokens(keys[1], SLOW), "Reclaimed bucket holds only its own key's request");
+			assertEquals(0, store.getRejectedInserts());
+		} finally {
+			log.info("-Test stale slot after reclaim end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testNoFreeSlotRejected() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test no free slot rejected start-");
+		try {
+			// One probe, never idle: the second key of a home slot finds no slot
+			LocalTokenBucketStore store = new LocalTokenBucketStore(SLOTS, TimeUnit.HOURS.toNanos(1), 1, false);
+			String[] keys = sameHomeSlot(2);
+			assertEquals(0, store.reserve(keys[0], SLOW, 0L));
+			for (int i = 0; i < 10; i++) {
+				assertEquals(-1, store.reserve(keys[1], SLOW, TimeUnit.HOURS.toNanos(1)),
+						"Key without a slot is rejected");
+			}
+			assertEquals(10, store.getRejectedInserts());
+			// The slot's owner is unaffected
+			assertEquals(4, store.getAvailableTokens(keys[0], SLOW));
+			assertEquals(0, store.reserve(keys[0], SLOW, 0L));
+		} finally {
+			log.info("-Test no free slot rejected end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(3)
+	void testNoFreeSlotFailsOpen() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test no free slot fails open start-");
+		try {
+			LocalTokenBucketStore store = new LocalTokenBucketStore(SLOTS, TimeUnit.HOURS.toNanos(1), 1, true);
+			String[] keys = sameHomeSlot(2);
+			for (int i = 0; i < 5; i++) {
+				assertEquals(0, store.reserve(keys[0], SLOW, 0L));
+			}
+			assertEquals(-1, store.reserve(keys[0], SLOW, 0L), "Owner of the slot is limited");
+			for (int i = 0; i < 10; i++) {
+				assertEquals(0, store.reserve(keys[1], SLOW, 0L), "Key without a slot is let through");
+			}
+			assertEquals(10, store.getRejectedInserts());
+			assertEquals(1, store.getUsedSlots());
+		} finally {
+			log.info("-Test no free slot fails open end-");
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * Keys of one home slot taking it from each other under contention, every
+	 * request must complete (no thread left spinning on a reclaimed slot) and no
+	 * key may end up in two slots.
+	 */
+	@Test
+	@Order(4)
+	void testConcurrentReclaim() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test concurrent reclaim start-");
+		try {
+			LocalTokenBucketStore store = new LocalTokenBucketStore(SLOTS, 0L, 4, false);
+			String[] keys = sameHomeSlot(8);
+			int threads = 32;
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				CountDownLatch start = new CountDownLatch(1);
+				AtomicBoolean running = new AtomicBoolean(true);
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					String key = keys[t % keys.length];
+					futures.add(executor.submit(() -> {
+						start.await();
+						while (running.get()) {
+							store.reserve(key, FAST, 0L);
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				TimeUnit.MILLISECONDS.sleep(500);
+				running.set(false);
+				for (Future<?> future : futures) {
+					future.get(5, TimeUnit.SECONDS);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+			// 4 probed slots shared by 8 keys
+			assertTrue(store.getUsedSlots() <= 4);
+			for (String key : keys) {
+				int owned = 0;
+				long hash = LocalTokenBucketStore.hash(key);
+				for (int i = 0; i < SLOTS; i++) {
+					if (store.slotKey(i) == hash) {
+						owned++;
+					}
+				}
+				assertTrue(owned <= 1, "Key " + key + " holds " + owned + " slots");
+			}
+		} finally {
+			log.info("-Test concurrent reclaim end-");
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * Distinct keys hashing to the first slot of the table.
+	 */
+	private static String[] sameHomeSlot(int count) {
+		String[] keys = new String[count];
+		int found = 0;
+		for (int i = 0; found < count; i++) {
+			String key = "ip:10.0." + i;
+			if ((LocalTokenBucketStore.hash(key) & (SLOTS - 1)) == 0) {
+				keys[found++] = key;
+			}
+		}
+		return keys;
+	}
+}
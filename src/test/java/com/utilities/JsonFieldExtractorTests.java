@@ -0,0 +1,76 @@
+package com.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rate limit key fields read from JSON bodies, no Spring context: nested and
+ * array fields are found in one pass, and a duplicated field name yields no
+ * fields rather than the first occurrence Jackson binding would override.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class JsonFieldExtractorTests {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	@Test
+	@Order(1)
+	void testExtractFields() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test extract fields start-");
+		try {
+			JsonFieldExtractor extractor = JsonFieldExtractor.compile(List.of("userId", "user.id", "items.1.sku"));
+			Map<String, String> fields = extract(extractor,
+					"{\"other\":{\"userId\":\"x\"},\"userId\":42,\"user\":{\"id\":\"u1\",\"name\":null},"
+							+ "\"items\":[{\"sku\":\"a\"},{\"sku\":\"b\"}],\"after\":[1,2]}");
+			assertEquals(Map.of("userId", "42", "user.id", "u1", "items.1.sku", "b"), fields);
+			assertEquals(Map.of("user.id", "u1"), extract(extractor, "{\"user\":{\"id\":\"u1\"},\"userId\":null}"));
+		} finally {
+			log.info("-Test extract fields end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testDuplicateFieldNotFound() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test duplicate field not found start-");
+		try {
+			JsonFieldExtractor extractor = JsonFieldExtractor.compile(List.of("userId", "user.id"));
+			// Binding keeps the last occurrence, the key must not use the first one
+			assertTrue(extract(extractor, "{\"userId\":\"random\",\"userId\":\"victim\"}").isEmpty());
+			assertTrue(extract(extractor, "{\"user\":{\"id\":\"random\",\"id\":\"victim\"},\"userId\":\"u\"}").isEmpty());
+			// Duplicate after every field was found, and a duplicated container
+			assertTrue(extract(extractor, "{\"userId\":\"u\",\"user\":{\"id\":\"i\"},\"x\":{\"a\":1,\"a\":2}}").isEmpty());
+			assertTrue(extract(extractor, "{\"user\":{\"id\":\"random\"},\"user\":{\"id\":\"victim\"}}").isEmpty());
+			// Same name in different objects isn't a duplicate
+			assertEquals(Map.of("userId", "u", "user.id", "i"),
+					extract(extractor, "{\"user\":{\"id\":\"i\",\"userId\":\"x\"},\"userId\":\"u\",\"o\":{\"id\":1}}"));
+		} finally {
+			log.info("-Test duplicate field not found end-");
+			MDC.clear();
+		}
+	}
+
+	private static Map<String, String> extract(JsonFieldExtractor extractor, String json) throws Throwable {
+		return extractor.extract(OBJECT_MAPPER, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,209 @@
+package com.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming JsonMasking against the tree-based masking it replaced, on the
+ * String, byte[] and log (heap & direct buffer) paths, no Spring context.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class JsonMaskingTests {
+
+	private static final Set<String> FIELDS = Set.of("password", "pin", "otp", "cvv", "cvc", "card_no", "cardno",
+			"pan", "secret", "token", "access-token", "refresh-token", "api-key");
+
+	private static final Set<String> CARD_FIELDS = Set.of("card_no", "cardno", "pan");
+
+	private static final List<String> DOCUMENTS = List.of(
+			"{}",
+			"[]",
+			"{\"username\":\"john\",\"password\":\"s3cr3t!\"}",
+			"{\"PassWord\":\"abc\",\"PIN\":\"123456\",\"Otp\":123456,\"cvv\":true,\"CVC\":null}",
+			"{\"card_no\":\"4111111111111234\",\"CARDNO\":\"41111111111112345678\",\"Pan\":\"411111111111\",\"pan\":4111111111111234}",
+			"{\"user\":{\"name\":\"a\",\"secret\":\"xyz\",\"address\":{\"token\":\"t0k3n\",\"city\":\"KL\"}}}",
+			"{\"items\":[{\"pin\":\"1\"},{\"pin\":\"22\",\"qty\":2},[{\"Token\":\"abc\"}],\"plain\",3,null]}",
+			"[{\"API-KEY\":\"k\"},[[{\"access-token\":\"at\",\"refresh-token\":\"rt\"}]],{\"nested\":[]}]",
+			"{\"secret\":{\"inner\":\"value\",\"more\":[1,2,3]},\"token\":[\"a\",\"b\"],\"after\":\"kept\"}",
+			"{\"amount\":12.5,\"rate\":-0.25,\"count\":12345678901234567890,\"flag\":false,\"none\":null}",
+			"{\"pin\":1.5,\"otp\":-12,\"cvv\":12345678901234567890}",
+			"{\"note\":\"quote \\\" backslash \\\\ tab \\t unicode \\u00e9 \\u4e2d\",\"password\":\"p\\\"w\\u00e9\"}",
+			"{\"名前\":\"値\",\"password\":\"пароль\",\"emoji\":\"\\ud83d\\ude00\"}",
+			"{\"password\":\"" + "x".repeat(100) + "\",\"pin\":\"\"}",
+			"{\"ic_no\":\"900101145678\",\"IC_NO\":\"900101145678\",\"Ic_No\":{\"a\":1}}");
+
+	@Test
+	@Order(1)
+	void testMaskJsonLikeTreeMasking() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test mask json like tree masking start-");
+		try {
+			ObjectMapper objectMapper = new ObjectMapper();
+			JsonMasking jsonMasking = new JsonMasking(objectMapper);
+			jsonMasking.addFields2Mask(Set.of("ic_no"));
+			Set<String> fields = new HashSet<>(FIELDS);
+			fields.add("ic_no");
+			for (String json : DOCUMENTS) {
+				assertMasked(objectMapper, jsonMasking, fields, json);
+			}
+		} finally {
+			log.info("-Test mask json like tree masking end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testRandomDocumentsLikeTreeMasking() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test random documents like tree masking start-");
+		try {
+			ObjectMapper objectMapper = new ObjectMapper();
+			JsonMasking jsonMasking = new JsonMasking(objectMapper);
+			Random random = new Random(8583);
+			for (int i = 0; i < 500; i++) {
+				ObjectNode document = objectMapper.createObjectNode();
+				fill(document, random, 0);
+				assertMasked(objectMapper, jsonMasking, FIELDS, objectMapper.writeValueAsString(document));
+			}
+		} finally {
+			log.info("-Test random documents like tree masking end-");
+			MDC.clear();
+		}
+	}
+
+	private static void assertMasked(ObjectMapper objectMapper, JsonMasking jsonMasking, Set<String> fields,
+			String json) throws Throwable {
+		String expected = objectMapper.writeValueAsString(maskNode(objectMapper, fields, objectMapper.readTree(json)));
+		assertEquals(expected, jsonMasking.maskJson(log, json), json);
+
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		jsonMasking.maskJson(log, bytes, 0, bytes.length, out);
+		assertEquals(expected, out.toString(StandardCharsets.UTF_8), json);
+
+		assertEquals(expected, jsonMasking.maskedForLog(log, bytes).toString(), json);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+		direct.put((byte) ' ').put(bytes).put((byte) '\n').flip();
+		assertEquals(expected, jsonMasking.maskedForLog(log, direct).toString(), json);
+	}
+
+	private static final String[] NAMES = { "password", "PIN", "Otp", "card_no", "CardNo", "PAN", "secret", "Token",
+			"ACCESS-TOKEN", "api-key", "name", "amount", "items", "passwords", "spin", "detail", "id" };
+
+	private static void fill(ObjectNode node, Random random, int depth) {
+		int fields = random.nextInt(5);
+		for (int i = 0; i < fields; i++) {
+			node.set(NAMES[random.nextInt(NAMES.length)], value(node, random, depth));
+		}
+	}
+
+	private static JsonNode value(ObjectNode factory, Random random, int depth) {
+		int kind = random.nextInt(depth < 4 ? 8 : 6);
+		switch (kind) {
+		case 0:
+			return factory.textNode("4111" + random.nextInt(1_000_000_000) + random.nextInt(1000));
+		case 1:
+			return factory.textNode("v" + "é".repeat(random.nextInt(3)) + random.nextInt(100));
+		case 2:
+			return factory.numberNode(random.nextInt());
+		case 3:
+			return factory.booleanNode(random.nextBoolean());
+		case 4:
+			return factory.nullNode();
+		case 5:
+			return factory.textNode("");
+		case 6: {
+			ObjectNode child = factory.objectNode();
+			fill(child, random, depth + 1);
+			return child;
+		}
+		default: {
+			ArrayNode array = factory.arrayNode();
+			int elements = random.nextInt(4);
+			for (int i = 0; i < elements; i++) {
+				array.add(value(factory, random, depth + 1));
+			}
+			return array;
+		}
+		}
+	}
+
+	// Previous JsonMasking implementation (tree based)
+
+	private static JsonNode maskNode(ObjectMapper objectMapper, Set<String> fields, JsonNode node) {
+		if (node.isObject()) {
+			return maskObjectNode(objectMapper, fields, (ObjectNode) node);
+		} else if (node.isArray()) {
+			return maskArrayNode(objectMapper, fields, (ArrayNode) node);
+		}
+		return node;
+	}
+
+	private static ObjectNode maskObjectNode(ObjectMapper objectMapper, Set<String> fields, ObjectNode objectNode) {
+		ObjectNode maskedObject = objectMapper.createObjectNode();
+		Iterator<String> fieldNames = objectNode.fieldNames();
+		while (fieldNames.hasNext()) {
+			String fieldName = fieldNames.next();
+			JsonNode fieldValue = objectNode.get(fieldName);
+			if (fields.contains(fieldName.toLowerCase(Locale.ROOT))) {
+				String raw = (fieldValue == null || fieldValue.isNull()) ? "" : fieldValue.asText();
+				maskedObject.put(fieldName, CARD_FIELDS.contains(fieldName.toLowerCase(Locale.ROOT))
+						? maskCardNumber(raw) : "*".repeat(raw.length()));
+			} else if (fieldValue.isObject()) {
+				maskedObject.set(fieldName, maskObjectNode(objectMapper, fields, (ObjectNode) fieldValue));
+			} else if (fieldValue.isArray()) {
+				maskedObject.set(fieldName, maskArrayNode(objectMapper, fields, (ArrayNode) fieldValue));
+			} else {
+				maskedObject.set(fieldName, fieldValue);
+			}
+		}
+		return maskedObject;
+	}
+
+	private static ArrayNode maskArrayNode(ObjectMapper objectMapper, Set<String> fields, ArrayNode arrayNode) {
+		ArrayNode maskedArray = objectMapper.createArrayNode();
+		for (JsonNode element : arrayNode) {
+			if (element.isObject()) {
+				maskedArray.add(maskObjectNode(objectMapper, fields, (ObjectNode) element));
+			} else if (element.isArray()) {
+				maskedArray.add(maskArrayNode(objectMapper, fields, (ArrayNode) element));
+			} else {
+				maskedArray.add(element);
+			}
+		}
+		return maskedArray;
+	}
+
+	private static String maskCardNumber(String value) {
+		int length = value.length();
+		if (length <= 12) {
+			return "*".repeat(length);
+		}
+		return value.substring(0, 8) + "*".repeat(length - 12) + value.substring(length - 4);
+	}
+}
@@ -0,0 +1,150 @@
+package com.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SensitiveKeyMatcher against the lookups it replaced: a lower-cased set
+ * lookup for JSON fields (JsonMasking) and a contains scan over every key for
+ * header / parameter names (RequestLoggingUtil), no Spring context.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class SensitiveKeyMatcherTests {
+
+	// JsonMasking default fields
+	private static final Set<String> FIELD_KEYS = Set.of("password", "pin", "otp", "cvv", "cvc", "card_no", "cardno",
+			"pan", "secret", "token", "access-token", "refresh-token", "api-key");
+
+	// RequestLoggingUtil SENSITIVE_KEYS
+	private static final Set<String> HEADER_KEYS = Set.of("authorization", "username", "password", "client-id",
+			"client-secret", "api-key", "access-token", "refresh-token", "session", "cookie", "x-api-key", "card_no",
+			"cardno", "cvv", "cvc");
+
+	private static final List<String> CANDIDATES = List.of("password", "PASSWORD", "PassWord", "passwor", "passwords",
+			"pin", "PIN", "Pin", "pinned", "spin", "otp", "OTP", "Card_No", "CARDNO", "card-no", "pan", "PAN", "Span",
+			"token", "Token", "access-token", "ACCESS-TOKEN", "access_token", "refresh-token", "api-key", "API-KEY",
+			"X-API-KEY", "x-api-key-id", "Authorization", "Proxy-Authorization", "WWW-Authenticate", "Cookie",
+			"Set-Cookie", "X-Session-Id", "sessionid", "userName", "x-username", "client-id", "X-Client-Secret",
+			"Content-Type", "Accept", "X-Request-ID", "amount", "cvv2", "CVC", "secret", "clientSecret", "",
+			"a", "-", "pässwort", "PÄSSWORT", "cookie-ñ", "ñ-password");
+
+	@Test
+	@Order(1)
+	void testMatchesLikeLowerCasedSetLookup() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test matches like lower-cased set lookup start-");
+		try {
+			SensitiveKeyMatcher matcher = SensitiveKeyMatcher.compile(FIELD_KEYS);
+			assertEquals(FIELD_KEYS.size(), matcher.size());
+			for (String candidate : CANDIDATES) {
+				assertEquals(FIELD_KEYS.contains(candidate.toLowerCase(Locale.ROOT)), matcher.matches(candidate),
+						"matches(\"" + candidate + "\")");
+			}
+			assertFalse(matcher.matches(null));
+		} finally {
+			log.info("-Test matches like lower-cased set lookup end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(2)
+	void testContainsAnyLikeContainsScan() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test contains any like contains scan start-");
+		try {
+			SensitiveKeyMatcher matcher = SensitiveKeyMatcher.compile(HEADER_KEYS);
+			for (String candidate : CANDIDATES) {
+				assertEquals(containsScan(HEADER_KEYS, candidate), matcher.containsAny(candidate),
+						"containsAny(\"" + candidate + "\")");
+			}
+			assertFalse(matcher.containsAny(null));
+		} finally {
+			log.info("-Test contains any like contains scan end-");
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * Keys that are prefixes / suffixes of each other need the failure links:
+	 * after a partial match of one key the scan must continue inside another.
+	 */
+	@Test
+	@Order(3)
+	void testOverlappingKeys() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test overlapping keys start-");
+		try {
+			Set<String> keys = Set.of("he", "she", "his", "hers", "api-key", "x-api-key", "aab");
+			SensitiveKeyMatcher matcher = SensitiveKeyMatcher.compile(keys);
+			for (String candidate : List.of("ushers", "USHERS", "shx", "hi", "this", "x-api-kex", "X-API-KEY",
+					"xx-api-ke", "aaab", "AAAB", "aaxb", "sh", "h")) {
+				assertEquals(containsScan(keys, candidate), matcher.containsAny(candidate),
+						"containsAny(\"" + candidate + "\")");
+			}
+			assertTrue(matcher.matches("HERS"));
+			assertFalse(matcher.matches("her"));
+		} finally {
+			log.info("-Test overlapping keys end-");
+			MDC.clear();
+		}
+	}
+
+	@Test
+	@Order(4)
+	void testRandomNamesLikePreviousLookups() {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test random names like previous lookups start-");
+		try {
+			SensitiveKeyMatcher fieldMatcher = SensitiveKeyMatcher.compile(FIELD_KEYS);
+			SensitiveKeyMatcher headerMatcher = SensitiveKeyMatcher.compile(HEADER_KEYS);
+			List<String> pieces = new ArrayList<>(HEADER_KEYS);
+			pieces.addAll(FIELD_KEYS);
+			pieces.addAll(List.of("x-", "-", "_", "a", "e", "ñ", "Ke", "TOK", "sess"));
+			Random random = new Random(8583);
+			for (int i = 0; i < 20_000; i++) {
+				StringBuilder name = new StringBuilder();
+				int count = random.nextInt(3) + 1;
+				for (int j = 0; j < count; j++) {
+					String piece = pieces.get(random.nextInt(pieces.size()));
+					// Cut some pieces so near misses are generated too
+					if (random.nextBoolean()) {
+						piece = piece.substring(0, random.nextInt(piece.length()) + 1);
+					}
+					name.append(random.nextBoolean() ? piece.toUpperCase(Locale.ROOT) : piece);
+				}
+				String candidate = name.toString();
+				assertEquals(FIELD_KEYS.contains(candidate.toLowerCase(Locale.ROOT)), fieldMatcher.matches(candidate),
+						"matches(\"" + candidate + "\")");
+				assertEquals(containsScan(HEADER_KEYS, candidate), headerMatcher.containsAny(candidate),
+						"containsAny(\"" + candidate + "\")");
+			}
+		} finally {
+			log.info("-Test random names like previous lookups end-");
+			MDC.clear();
+		}
+	}
+
+	// Previous RequestLoggingUtil.isSensitive
+	private static boolean containsScan(Set<String> keys, String key) {
+		String lowerKey = key.toLowerCase(Locale.ROOT);
+		return keys.stream().anyMatch(lowerKey::contains);
+	}
+}
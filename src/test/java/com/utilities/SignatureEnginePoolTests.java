@@ -0,0 +1,64 @@
+package com.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jboss.logging.MDC;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Engine pools, no Spring context: pools of key IDs dropped by a key reload
+ * are evicted with their engines, pools of the remaining keys are kept.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Slf4j
+public class SignatureEnginePoolTests {
+
+	private static final String ALGORITHM = "SHA256withRSA";
+
+	@Test
+	@Order(1)
+	void testRetainKeys() throws Throwable {
+		MDC.put("X-Request-ID", UUID.randomUUID());
+		log.info("-Test retain keys start-");
+		try {
+			SignatureEnginePool pool = new SignatureEnginePool(new SimpleMeterRegistry());
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			KeyPair kept = generator.generateKeyPair();
+			KeyPair removed = generator.generateKeyPair();
+			byte[] data = "{\"amount\":1}".getBytes(StandardCharsets.UTF_8);
+			for (String keyId : new String[] { "kept", "removed" }) {
+				KeyPair keyPair = keyId.equals("kept") ? kept : removed;
+				byte[] signature = pool.sign(ALGORITHM, keyId, keyPair.getPrivate(), data);
+				assertTrue(pool.verify(ALGORITHM, keyId, keyPair.getPublic(),
+						new ByteBuffer[] { ByteBuffer.wrap(data) }, signature));
+				assertEquals(1, pool.idle(ALGORITHM, true, keyId));
+				assertEquals(1, pool.idle(ALGORITHM, false, keyId));
+			}
+
+			// Reload dropped the "removed" key pair and the "kept" private key
+			pool.retainKeys(Set.of("kept"), Set.of());
+			assertEquals(1, pool.idle(ALGORITHM, false, "kept"));
+			assertEquals(0, pool.idle(ALGORITHM, true, "kept"));
+			assertEquals(0, pool.idle(ALGORITHM, false, "removed"));
+			assertEquals(0, pool.idle(ALGORITHM, true, "removed"));
+		} finally {
+			log.info("-Test retain keys end-");
+			MDC.clear();
+		}
+	}
+}